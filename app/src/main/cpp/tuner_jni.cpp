@@ -1,8 +1,18 @@
 #include <jni.h>
 #include <android/log.h>
 
+#include <semaphore.h>
+
+#include <algorithm>
 #include <atomic>
+#include <cerrno>
+#include <chrono>
+#include <cmath>
+#include <cstdint>
+#include <cstring>
+#include <ctime>
 #include <memory>
+#include <mutex>
 #include <thread>
 #include <vector>
 
@@ -12,16 +22,157 @@ namespace {
 
 constexpr const char *kTag = "TunerNative";
 
+// Slots of the shared capture stats buffer; keep in sync with OboeAudioSource.STAT_*.
+enum StatSlot : int32_t {
+    kStatReads = 0,
+    kStatFrames,
+    kStatShortReads,
+    kStatTimeouts,
+    kStatErrors,
+    kStatXRuns,
+    kStatExpectedIntervalNs,
+    kStatMeanIntervalNs,
+    kStatJitterNs,
+    kStatMaxIntervalNs,
+    kStatFramesPerRead,
+    kStatFramesPerBurst,
+    kStatBufferSize,
+    kStatBufferCapacity,
+    kStatDroppedFrames,
+    kStatCallbackMode,
+    kStatSlotCount
+};
+
+constexpr auto kStatsPeriod = std::chrono::seconds(1);
+constexpr int64_t kReadTimeoutNanos = 200000000;
+// Delay between attempts to reopen a disconnected stream.
+constexpr auto kRestartRetry = std::chrono::milliseconds(500);
+// FIFO depth in callback mode, in bursts and in Java reads, whichever is larger.
+constexpr int32_t kFifoBursts = 8;
+constexpr int32_t kFifoReads = 4;
+
+// Single-producer/single-consumer frame FIFO between the Oboe data callback and the delivery
+// thread, laid out like the Java PcmQueue: power-of-two capacity and monotonic indices. The
+// callback never blocks or allocates; frames that do not fit are rejected and counted by it.
+class PcmFifo {
+public:
+    // Not thread-safe; only called while the stream is stopped.
+    void reset(int32_t minFrames, int32_t bytesPerFrame) {
+        capacity_ = 1;
+        while (capacity_ < minFrames) {
+            capacity_ <<= 1;
+        }
+        frameBytes_ = bytesPerFrame;
+        data_.assign(static_cast<size_t>(capacity_) * frameBytes_, 0);
+        writeIndex_.store(0);
+        readIndex_.store(0);
+    }
+
+    int32_t write(const void *source, int32_t frames) {
+        int64_t write = writeIndex_.load(std::memory_order_relaxed);
+        int64_t read = readIndex_.load(std::memory_order_acquire);
+        int32_t accepted = static_cast<int32_t>(std::min<int64_t>(frames, capacity_ - (write - read)));
+        copyIn(static_cast<const uint8_t *>(source), write, accepted);
+        writeIndex_.store(write + accepted, std::memory_order_release);
+        return accepted;
+    }
+
+    int32_t read(void *target, int32_t maxFrames) {
+        int64_t read = readIndex_.load(std::memory_order_relaxed);
+        int64_t write = writeIndex_.load(std::memory_order_acquire);
+        int32_t count = static_cast<int32_t>(std::min<int64_t>(maxFrames, write - read));
+        copyOut(static_cast<uint8_t *>(target), read, count);
+        readIndex_.store(read + count, std::memory_order_release);
+        return count;
+    }
+
+private:
+    void copyIn(const uint8_t *source, int64_t index, int32_t frames) {
+        int32_t start = static_cast<int32_t>(index & (capacity_ - 1));
+        int32_t first = std::min(frames, capacity_ - start);
+        std::memcpy(data_.data() + static_cast<size_t>(start) * frameBytes_, source,
+                    static_cast<size_t>(first) * frameBytes_);
+        std::memcpy(data_.data(), source + static_cast<size_t>(first) * frameBytes_,
+                    static_cast<size_t>(frames - first) * frameBytes_);
+    }
+
+    void copyOut(uint8_t *target, int64_t index, int32_t frames) const {
+        int32_t start = static_cast<int32_t>(index & (capacity_ - 1));
+        int32_t first = std::min(frames, capacity_ - start);
+        std::memcpy(target, data_.data() + static_cast<size_t>(start) * frameBytes_,
+                    static_cast<size_t>(first) * frameBytes_);
+        std::memcpy(target + static_cast<size_t>(first) * frameBytes_, data_.data(),
+                    static_cast<size_t>(frames - first) * frameBytes_);
+    }
+
+    std::vector<uint8_t> data_;
+    int32_t capacity_ = 0;
+    int32_t frameBytes_ = 0;
+    std::atomic<int64_t> writeIndex_{0};
+    std::atomic<int64_t> readIndex_{0};
+};
+
 struct RecorderState {
     JavaVM *vm = nullptr;
     jobject engine = nullptr;
     jmethodID onPcm = nullptr;
+    jmethodID onPcmDirect = nullptr;
     jmethodID onStreamConfig = nullptr;
     jmethodID onAudioApi = nullptr;
+    jmethodID onCaptureStats = nullptr;
     std::shared_ptr<oboe::AudioStream> stream;
+    // Held while the stream is stopped, reopened or replaced, so nativeStop never sees one half
+    // swapped by the read thread's restart.
+    std::mutex streamLock;
     std::thread thread;
     std::atomic<bool> running{false};
+    int32_t requestedSampleRate = 0;
+    int32_t requestedFramesPerRead = 0;
     int32_t framesPerRead = 0;
+    // Shared direct ByteBuffer: when set, reads land in Java-visible memory and only the
+    // frame count crosses JNI.
+    jobject pcmBuffer = nullptr;
+    void *pcmData = nullptr;
+    int32_t pcmCapacity = 0;
+    // Float capture is only used with the shared buffer; the array fallback always stays I16.
+    bool floatFormat = false;
+    // Second direct buffer of kStatSlotCount int64 slots, filled before each onCaptureStats.
+    jobject statsBuffer = nullptr;
+    int64_t *statsData = nullptr;
+    // Callback mode (AAudio): Oboe pushes bursts into the FIFO and posts dataReady; the read
+    // thread drains it. Otherwise the read thread blocks in stream->read().
+    bool callbackMode = false;
+    PcmFifo fifo;
+    sem_t dataReady;
+    bool dataReadyInit = false;
+    std::atomic<int64_t> droppedFrames{0};
+    std::atomic<int64_t> callbackErrors{0};
+    // Set when the stream was closed under us (device disconnected, route change); the read
+    // thread reopens it with the original request.
+    std::atomic<bool> restartNeeded{false};
+};
+
+// Read-side counters, owned by the read thread. Intervals are between reads that returned audio
+// and cover the current report period only.
+struct CaptureHealth {
+    int64_t reads = 0;
+    int64_t frames = 0;
+    int64_t shortReads = 0;
+    int64_t timeouts = 0;
+    int64_t errors = 0;
+    int64_t intervals = 0;
+    double intervalSum = 0;
+    double intervalSquares = 0;
+    int64_t maxInterval = 0;
+
+    void addInterval(int64_t nanos) {
+        intervals++;
+        intervalSum += static_cast<double>(nanos);
+        intervalSquares += static_cast<double>(nanos) * static_cast<double>(nanos);
+        if (nanos > maxInterval) {
+            maxInterval = nanos;
+        }
+    }
 };
 
 RecorderState gState;
@@ -30,12 +181,39 @@ void logWarning(const char *message) {
     __android_log_write(ANDROID_LOG_WARN, kTag, message);
 }
 
-oboe::Result openStream(int32_t requestedSampleRate, int32_t framesPerRead) {
+// Runs on Oboe's audio thread: copy, signal and return, nothing that can block or allocate.
+class CaptureCallback : public oboe::AudioStreamDataCallback, public oboe::AudioStreamErrorCallback {
+public:
+    oboe::DataCallbackResult onAudioReady(oboe::AudioStream * /*stream*/, void *audioData,
+                                          int32_t numFrames) override {
+        int32_t written = gState.fifo.write(audioData, numFrames);
+        if (written < numFrames) {
+            gState.droppedFrames.fetch_add(numFrames - written, std::memory_order_relaxed);
+        }
+        sem_post(&gState.dataReady);
+        return oboe::DataCallbackResult::Continue;
+    }
+
+    // Oboe has already closed the stream; hand the reopen to the read thread and wake it.
+    void onErrorAfterClose(oboe::AudioStream * /*stream*/, oboe::Result /*error*/) override {
+        gState.callbackErrors.fetch_add(1, std::memory_order_relaxed);
+        gState.restartNeeded.store(true);
+        sem_post(&gState.dataReady);
+    }
+};
+
+CaptureCallback gCallback;
+
+oboe::Result openStream(int32_t requestedSampleRate, int32_t framesPerRead, bool callbackMode) {
     oboe::AudioStreamBuilder builder;
+    if (callbackMode) {
+        builder.setDataCallback(&gCallback)->setErrorCallback(&gCallback);
+    }
     builder.setDirection(oboe::Direction::Input)
             ->setPerformanceMode(oboe::PerformanceMode::LowLatency)
             ->setSharingMode(oboe::SharingMode::Exclusive)
-            ->setFormat(oboe::AudioFormat::I16)
+            ->setFormat(gState.floatFormat ? oboe::AudioFormat::Float : oboe::AudioFormat::I16)
+            ->setFormatConversionAllowed(true)
             ->setSampleRate(requestedSampleRate)
             ->setChannelCount(oboe::ChannelCount::Mono);
 
@@ -53,9 +231,33 @@ oboe::Result openStream(int32_t requestedSampleRate, int32_t framesPerRead) {
     if (gState.framesPerRead <= 0) {
         gState.framesPerRead = gState.stream->getFramesPerBurst();
     }
+    if (gState.pcmData != nullptr && gState.framesPerRead > gState.pcmCapacity) {
+        gState.framesPerRead = gState.pcmCapacity;
+    }
+    gState.callbackMode = callbackMode;
+    if (callbackMode) {
+        int32_t burst = gState.stream->getFramesPerBurst();
+        gState.fifo.reset(std::max(burst * kFifoBursts, gState.framesPerRead * kFifoReads),
+                          gState.stream->getBytesPerFrame());
+    }
     return oboe::Result::OK;
 }
 
+// Callback capture on AAudio; OpenSL ES (and a failed callback open) keep the blocking reads.
+oboe::Result openPreferredStream(int32_t requestedSampleRate, int32_t framesPerRead) {
+    if (oboe::AudioStreamBuilder::isAAudioRecommended()) {
+        oboe::Result result = openStream(requestedSampleRate, framesPerRead, true);
+        if (result == oboe::Result::OK && gState.stream->getAudioApi() == oboe::AudioApi::AAudio) {
+            return result;
+        }
+        if (gState.stream) {
+            gState.stream->close();
+            gState.stream.reset();
+        }
+    }
+    return openStream(requestedSampleRate, framesPerRead, false);
+}
+
 void notifyStreamConfig(JNIEnv *env) {
     if (gState.engine == nullptr || gState.onStreamConfig == nullptr || gState.stream == nullptr) {
         return;
@@ -72,6 +274,127 @@ void notifyAudioApi(JNIEnv *env) {
     env->CallVoidMethod(gState.engine, gState.onAudioApi, static_cast<jint>(api));
 }
 
+// Writes the counters into the shared buffer and lets Java copy them; nothing is allocated.
+void publishHealth(JNIEnv *env, CaptureHealth &health) {
+    if (gState.statsData == nullptr || gState.onCaptureStats == nullptr || !gState.stream) {
+        return;
+    }
+    int64_t *slots = gState.statsData;
+    slots[kStatReads] = health.reads;
+    slots[kStatFrames] = health.frames;
+    slots[kStatShortReads] = health.shortReads;
+    slots[kStatTimeouts] = health.timeouts;
+    slots[kStatErrors] = health.errors;
+    auto xRuns = gState.stream->getXRunCount();
+    slots[kStatXRuns] = xRuns ? xRuns.value() : -1;
+
+    double mean = health.intervals > 0 ? health.intervalSum / health.intervals : 0.0;
+    double variance = health.intervals > 0 ? health.intervalSquares / health.intervals - mean * mean : 0.0;
+    int32_t sampleRate = gState.stream->getSampleRate();
+    // A callback delivery normally carries one burst, a blocking read framesPerRead frames.
+    int32_t framesPerDelivery = gState.callbackMode ? gState.stream->getFramesPerBurst() : gState.framesPerRead;
+    slots[kStatExpectedIntervalNs] = sampleRate > 0
+            ? static_cast<int64_t>(framesPerDelivery) * 1000000000LL / sampleRate : 0;
+    slots[kStatMeanIntervalNs] = std::llround(mean);
+    slots[kStatJitterNs] = std::llround(std::sqrt(variance > 0.0 ? variance : 0.0));
+    slots[kStatMaxIntervalNs] = health.maxInterval;
+    slots[kStatFramesPerRead] = gState.framesPerRead;
+    slots[kStatFramesPerBurst] = gState.stream->getFramesPerBurst();
+    slots[kStatBufferSize] = gState.stream->getBufferSizeInFrames();
+    slots[kStatBufferCapacity] = gState.stream->getBufferCapacityInFrames();
+    slots[kStatDroppedFrames] = gState.droppedFrames.load(std::memory_order_relaxed);
+    slots[kStatCallbackMode] = gState.callbackMode ? 1 : 0;
+    health.intervals = 0;
+    health.intervalSum = 0;
+    health.intervalSquares = 0;
+    health.maxInterval = 0;
+
+    env->CallVoidMethod(gState.engine, gState.onCaptureStats);
+}
+
+// Blocking mode: one read of up to framesPerRead frames. Failures count and yield 0 frames.
+int32_t readStream(void *target, CaptureHealth &health) {
+    auto result = gState.stream->read(target, gState.framesPerRead, kReadTimeoutNanos);
+    if (!result) {
+        if (result.error() == oboe::Result::ErrorTimeout) {
+            health.timeouts++;
+        } else {
+            health.errors++;
+            if (result.error() == oboe::Result::ErrorDisconnected) {
+                gState.restartNeeded.store(true);
+            }
+        }
+        return 0;
+    }
+    if (result.value() < gState.framesPerRead) {
+        health.shortReads++;
+    }
+    return result.value();
+}
+
+bool waitForData() {
+    timespec deadline{};
+    clock_gettime(CLOCK_REALTIME, &deadline);
+    deadline.tv_nsec += kReadTimeoutNanos;
+    if (deadline.tv_nsec >= 1000000000L) {
+        deadline.tv_sec += 1;
+        deadline.tv_nsec -= 1000000000L;
+    }
+    while (sem_timedwait(&gState.dataReady, &deadline) != 0) {
+        if (errno != EINTR) {
+            return false;
+        }
+    }
+    return true;
+}
+
+// Callback mode: takes whatever the callback has buffered, up to framesPerRead, so each burst
+// reaches Java as soon as it arrives instead of after a full hop. Waits only when empty.
+int32_t drainFifo(void *target, CaptureHealth &health) {
+    health.errors += gState.callbackErrors.exchange(0, std::memory_order_relaxed);
+    // Posts for bursts this read is about to take would otherwise wake the next wait for nothing;
+    // a burst written after the read posts again, so no wakeup is lost.
+    while (sem_trywait(&gState.dataReady) == 0) {
+    }
+    int32_t frames = gState.fifo.read(target, gState.framesPerRead);
+    if (frames > 0 || gState.restartNeeded.load()) {
+        return frames;
+    }
+    if (!waitForData()) {
+        health.timeouts++;
+        return 0;
+    }
+    // Zero only when woken by nativeStop or a stream error rather than a burst.
+    return gState.fifo.read(target, gState.framesPerRead);
+}
+
+// Reopens and starts the stream after a disconnect and tells Java the (possibly new) rate and
+// API. On failure the stream is left closed and the caller retries.
+bool restartStream(JNIEnv *env) {
+    {
+        std::lock_guard<std::mutex> lock(gState.streamLock);
+        if (!gState.running.load()) {
+            return false;
+        }
+        if (gState.stream) {
+            gState.stream->close();
+            gState.stream.reset();
+        }
+        oboe::Result result = openPreferredStream(gState.requestedSampleRate, gState.requestedFramesPerRead);
+        if (result != oboe::Result::OK || !gState.stream) {
+            return false;
+        }
+        if (gState.stream->requestStart() != oboe::Result::OK) {
+            gState.stream->close();
+            gState.stream.reset();
+            return false;
+        }
+    }
+    notifyStreamConfig(env);
+    notifyAudioApi(env);
+    return true;
+}
+
 void readLoop() {
     JNIEnv *env = nullptr;
     if (gState.vm->AttachCurrentThread(&env, nullptr) != JNI_OK) {
@@ -82,19 +405,57 @@ void readLoop() {
     notifyStreamConfig(env);
     notifyAudioApi(env);
 
-    std::vector<int16_t> buffer(static_cast<size_t>(gState.framesPerRead));
+    std::vector<int16_t> buffer;
+    void *target = gState.pcmData;
+    if (target == nullptr) {
+        buffer.resize(static_cast<size_t>(gState.framesPerRead));
+        target = buffer.data();
+    }
+
+    using Clock = std::chrono::steady_clock;
+    CaptureHealth health;
+    Clock::time_point lastReport = Clock::now();
+    Clock::time_point lastRead;
+    bool haveRead = false;
 
     while (gState.running.load()) {
+        if (gState.restartNeeded.exchange(false)) {
+            if (!restartStream(env)) {
+                logWarning("Failed to reopen Oboe stream, retrying");
+                gState.restartNeeded.store(true);
+                std::this_thread::sleep_for(kRestartRetry);
+                continue;
+            }
+            logWarning("Oboe stream reopened after disconnect");
+            haveRead = false;
+            if (gState.pcmData == nullptr) {
+                buffer.resize(static_cast<size_t>(gState.framesPerRead));
+                target = buffer.data();
+            }
+        }
         if (!gState.stream) {
             break;
         }
-        auto result = gState.stream->read(buffer.data(), gState.framesPerRead, 200000000);
-        if (!result) {
+        int32_t framesRead = gState.callbackMode ? drainFifo(target, health) : readStream(target, health);
+        Clock::time_point now = Clock::now();
+        if (now - lastReport >= kStatsPeriod) {
+            lastReport = now;
+            publishHealth(env, health);
+        }
+        if (framesRead <= 0) {
             continue;
         }
+        health.reads++;
+        health.frames += framesRead;
+        if (haveRead) {
+            health.addInterval(std::chrono::duration_cast<std::chrono::nanoseconds>(now - lastRead).count());
+        }
+        lastRead = now;
+        haveRead = true;
 
-        int32_t framesRead = result.value();
-        if (framesRead <= 0) {
+        if (gState.pcmData != nullptr) {
+            // Java consumes the shared buffer before returning, so the next read may reuse it.
+            env->CallVoidMethod(gState.engine, gState.onPcmDirect, static_cast<jint>(framesRead));
             continue;
         }
 
@@ -127,10 +488,13 @@ bool ensureJniRefs(JNIEnv *env, jobject thiz) {
             return false;
         }
         gState.onPcm = env->GetMethodID(cls, "onPcm", "([SI)V");
+        gState.onPcmDirect = env->GetMethodID(cls, "onPcmDirect", "(I)V");
         gState.onStreamConfig = env->GetMethodID(cls, "onStreamConfig", "(I)V");
         gState.onAudioApi = env->GetMethodID(cls, "onAudioApi", "(I)V");
+        gState.onCaptureStats = env->GetMethodID(cls, "onCaptureStats", "()V");
         env->DeleteLocalRef(cls);
-        if (!gState.onPcm || !gState.onStreamConfig || !gState.onAudioApi) {
+        if (!gState.onPcm || !gState.onPcmDirect || !gState.onStreamConfig || !gState.onAudioApi
+                || !gState.onCaptureStats) {
             logWarning("Failed to resolve JNI methods");
             return false;
         }
@@ -139,12 +503,65 @@ bool ensureJniRefs(JNIEnv *env, jobject thiz) {
     return true;
 }
 
+void bindPcmBuffer(JNIEnv *env, jobject pcmBuffer, bool floatFormat) {
+    gState.floatFormat = false;
+    if (pcmBuffer == nullptr) {
+        return;
+    }
+    void *address = env->GetDirectBufferAddress(pcmBuffer);
+    jlong capacityBytes = env->GetDirectBufferCapacity(pcmBuffer);
+    jlong sampleBytes = floatFormat ? sizeof(float) : sizeof(int16_t);
+    if (address == nullptr || capacityBytes < sampleBytes) {
+        logWarning("PCM buffer is not direct, falling back to array transport");
+        return;
+    }
+    gState.pcmBuffer = env->NewGlobalRef(pcmBuffer);
+    gState.pcmData = address;
+    gState.pcmCapacity = static_cast<int32_t>(capacityBytes / sampleBytes);
+    gState.floatFormat = floatFormat;
+}
+
+void bindStatsBuffer(JNIEnv *env, jobject statsBuffer) {
+    if (statsBuffer == nullptr) {
+        return;
+    }
+    void *address = env->GetDirectBufferAddress(statsBuffer);
+    jlong capacityBytes = env->GetDirectBufferCapacity(statsBuffer);
+    if (address == nullptr || capacityBytes < static_cast<jlong>(kStatSlotCount * sizeof(int64_t))) {
+        logWarning("Stats buffer is not direct or too small, capture stats disabled");
+        return;
+    }
+    gState.statsBuffer = env->NewGlobalRef(statsBuffer);
+    gState.statsData = static_cast<int64_t *>(address);
+}
+
+void releaseStatsBuffer(JNIEnv *env) {
+    if (gState.statsBuffer) {
+        env->DeleteGlobalRef(gState.statsBuffer);
+        gState.statsBuffer = nullptr;
+    }
+    gState.statsData = nullptr;
+}
+
+void releasePcmBuffer(JNIEnv *env) {
+    if (gState.pcmBuffer) {
+        env->DeleteGlobalRef(gState.pcmBuffer);
+        gState.pcmBuffer = nullptr;
+    }
+    gState.pcmData = nullptr;
+    gState.pcmCapacity = 0;
+    gState.floatFormat = false;
+}
+
 }  // namespace
 
 extern "C" JNIEXPORT jboolean JNICALL
-Java_com_example_tuner_TunerEngine_nativeStart(JNIEnv *env, jobject thiz,
-                                               jint requestedSampleRate,
-                                               jint framesPerRead) {
+Java_com_example_tuner_OboeAudioSource_nativeStart(JNIEnv *env, jobject thiz,
+                                                   jint requestedSampleRate,
+                                                   jint framesPerRead,
+                                                   jobject pcmBuffer,
+                                                   jboolean floatFormat,
+                                                   jobject statsBuffer) {
     if (gState.running.load()) {
         return JNI_TRUE;
     }
@@ -155,9 +572,25 @@ Java_com_example_tuner_TunerEngine_nativeStart(JNIEnv *env, jobject thiz,
         env->GetJavaVM(&gState.vm);
     }
 
-    oboe::Result result = openStream(requestedSampleRate, framesPerRead);
+    bindPcmBuffer(env, pcmBuffer, floatFormat == JNI_TRUE);
+    bindStatsBuffer(env, statsBuffer);
+
+    if (!gState.dataReadyInit) {
+        sem_init(&gState.dataReady, 0, 0);
+        gState.dataReadyInit = true;
+    }
+    while (sem_trywait(&gState.dataReady) == 0) {
+    }
+    gState.requestedSampleRate = requestedSampleRate;
+    gState.requestedFramesPerRead = framesPerRead;
+    gState.droppedFrames.store(0);
+    gState.callbackErrors.store(0);
+    gState.restartNeeded.store(false);
+    oboe::Result result = openPreferredStream(requestedSampleRate, framesPerRead);
     if (result != oboe::Result::OK || !gState.stream) {
         logWarning("Failed to open Oboe stream");
+        releasePcmBuffer(env);
+        releaseStatsBuffer(env);
         return JNI_FALSE;
     }
 
@@ -165,6 +598,8 @@ Java_com_example_tuner_TunerEngine_nativeStart(JNIEnv *env, jobject thiz,
         logWarning("Failed to start Oboe stream");
         gState.stream->close();
         gState.stream.reset();
+        releasePcmBuffer(env);
+        releaseStatsBuffer(env);
         return JNI_FALSE;
     }
 
@@ -174,10 +609,17 @@ Java_com_example_tuner_TunerEngine_nativeStart(JNIEnv *env, jobject thiz,
 }
 
 extern "C" JNIEXPORT void JNICALL
-Java_com_example_tuner_TunerEngine_nativeStop(JNIEnv *env, jobject /*thiz*/) {
+Java_com_example_tuner_OboeAudioSource_nativeStop(JNIEnv *env, jobject /*thiz*/) {
     gState.running.store(false);
-    if (gState.stream) {
-        gState.stream->requestStop();
+    {
+        std::lock_guard<std::mutex> lock(gState.streamLock);
+        if (gState.stream) {
+            gState.stream->requestStop();
+        }
+    }
+    if (gState.dataReadyInit) {
+        // Wakes a read thread waiting for the next callback.
+        sem_post(&gState.dataReady);
     }
     if (gState.thread.joinable()) {
         gState.thread.join();
@@ -191,7 +633,11 @@ Java_com_example_tuner_TunerEngine_nativeStop(JNIEnv *env, jobject /*thiz*/) {
         env->DeleteGlobalRef(gState.engine);
         gState.engine = nullptr;
     }
+    releasePcmBuffer(env);
+    releaseStatsBuffer(env);
     gState.onPcm = nullptr;
+    gState.onPcmDirect = nullptr;
     gState.onStreamConfig = nullptr;
     gState.onAudioApi = nullptr;
+    gState.onCaptureStats = nullptr;
 }
@@ -1,6 +1,9 @@
 package com.example.tuner;
 
 import android.os.Bundle;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
@@ -14,8 +17,18 @@ import com.google.android.material.slider.Slider;
 
 public class AlgorithmSettingsActivity extends AppCompatActivity {
 
+    private static final DifferenceMode[] DIFFERENCE_MODES = {DifferenceMode.FFT, DifferenceMode.DIRECT};
+    private static final String[] DIFFERENCE_MODE_LABELS = {"FFT（快速）", "直接计算"};
+    private static final OverloadPolicy[] OVERLOAD_POLICIES = {OverloadPolicy.COALESCE, OverloadPolicy.DROP_OLDEST};
+    private static final String[] OVERLOAD_POLICY_LABELS = {"合并（只分析最新）", "丢弃最旧"};
+    private static final String[] DECIMATION_LABELS = {"关闭", "÷2", "÷4"};
+    private static final String[] PARALLELISM_LABELS = {"单线程", "2 线程", "3 线程", "4 线程"};
+    private static final PitchTrackerMode[] PITCH_TRACKERS = {PitchTrackerMode.SMOOTHING, PitchTrackerMode.KALMAN};
+    private static final String[] PITCH_TRACKER_LABELS = {"平滑", "卡尔曼（预测）"};
+
     private ActivityAlgorithmSettingsBinding binding;
     private TunerSettings currentSettings;
+    private boolean initializingModes = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -25,8 +38,9 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
         applyEdgeInsets(binding.getRoot());
 
-        currentSettings = TunerSettings.load(this);
+        currentSettings = TunerSettings.load(SharedPreferencesStore.of(this));
         setupSliders();
+        setupModes();
         setupButtons();
     }
 
@@ -96,6 +110,132 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
         });
     }
 
+    private void setupModes() {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                DIFFERENCE_MODE_LABELS);
+        initializingModes = true;
+        binding.spinnerDifferenceMode.setAdapter(adapter);
+        binding.spinnerDifferenceMode.setSelection(differenceModeIndex(currentSettings.differenceMode));
+        binding.spinnerOverloadPolicy.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                OVERLOAD_POLICY_LABELS));
+        binding.spinnerOverloadPolicy.setSelection(overloadPolicyIndex(currentSettings.overloadPolicy));
+        binding.spinnerDecimation.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                DECIMATION_LABELS));
+        binding.spinnerDecimation.setSelection(decimationIndex(currentSettings.decimation));
+        binding.spinnerParallelism.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                PARALLELISM_LABELS));
+        binding.spinnerParallelism.setSelection(parallelismIndex(currentSettings.parallelism));
+        binding.spinnerPitchTracker.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                PITCH_TRACKER_LABELS));
+        binding.spinnerPitchTracker.setSelection(pitchTrackerIndex(currentSettings.pitchTracker));
+        initializingModes = false;
+        updateParallelismControl(currentSettings);
+        binding.switchFloatPipeline.setChecked(currentSettings.floatPipeline);
+        binding.switchFloatPipeline.setOnCheckedChangeListener((button, checked) -> {
+            if (initializingModes) {
+                return;
+            }
+            applySettings(currentSettings.withFloatPipeline(checked));
+        });
+        binding.switchLowLatency.setChecked(currentSettings.lowLatency);
+        binding.switchLowLatency.setOnCheckedChangeListener((button, checked) -> {
+            if (initializingModes) {
+                return;
+            }
+            applySettings(currentSettings.withLowLatency(checked));
+        });
+        binding.switchTrackingSearch.setChecked(currentSettings.trackingSearch);
+        binding.switchTrackingSearch.setOnCheckedChangeListener((button, checked) -> {
+            if (initializingModes) {
+                return;
+            }
+            applySettings(currentSettings.withTrackingSearch(checked));
+        });
+        binding.switchPerfOverlay.setChecked(currentSettings.perfOverlay);
+        binding.switchPerfOverlay.setOnCheckedChangeListener((button, checked) -> {
+            if (initializingModes) {
+                return;
+            }
+            applySettings(currentSettings.withPerfOverlay(checked));
+        });
+        binding.spinnerDifferenceMode.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (initializingModes) {
+                    return;
+                }
+                applySettings(currentSettings.withDifferenceMode(DIFFERENCE_MODES[position]));
+                updateParallelismControl(currentSettings);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        binding.spinnerOverloadPolicy.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (initializingModes) {
+                    return;
+                }
+                applySettings(currentSettings.withOverloadPolicy(OVERLOAD_POLICIES[position]));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        binding.spinnerDecimation.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (initializingModes) {
+                    return;
+                }
+                applySettings(currentSettings.withDecimation(TunerSettings.DECIMATION_OPTIONS[position]));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        binding.spinnerParallelism.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (initializingModes) {
+                    return;
+                }
+                applySettings(currentSettings.withParallelism(TunerSettings.PARALLELISM_OPTIONS[position]));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+        binding.spinnerPitchTracker.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                if (initializingModes) {
+                    return;
+                }
+                applySettings(currentSettings.withPitchTracker(PITCH_TRACKERS[position]));
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        });
+    }
+
     private void setupButtons() {
         binding.resetButton.setOnClickListener(v -> {
             TunerSettings defaults = TunerSettings.defaults();
@@ -103,7 +243,16 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
                     .withWindowSize(defaults.windowSize)
                     .withSmoothingAlpha(defaults.smoothingAlpha)
                     .withNoiseFloorDb(defaults.noiseFloorDb)
-                    .withYinThreshold(defaults.yinThreshold);
+                    .withYinThreshold(defaults.yinThreshold)
+                    .withDifferenceMode(defaults.differenceMode)
+                    .withFloatPipeline(defaults.floatPipeline)
+                    .withOverloadPolicy(defaults.overloadPolicy)
+                    .withDecimation(defaults.decimation)
+                    .withParallelism(defaults.parallelism)
+                    .withPitchTracker(defaults.pitchTracker)
+                    .withLowLatency(defaults.lowLatency)
+                    .withTrackingSearch(defaults.trackingSearch)
+                    .withPerfOverlay(defaults.perfOverlay);
             applySettings(updated);
             updateSliderValues(updated);
         });
@@ -123,13 +272,42 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
 
         binding.sliderYinThreshold.setValue((float) settings.yinThreshold);
         binding.valueYinThreshold.setText(String.format("%.2f", settings.yinThreshold));
+
+        initializingModes = true;
+        binding.spinnerDifferenceMode.setSelection(differenceModeIndex(settings.differenceMode));
+        binding.spinnerOverloadPolicy.setSelection(overloadPolicyIndex(settings.overloadPolicy));
+        binding.spinnerDecimation.setSelection(decimationIndex(settings.decimation));
+        binding.spinnerParallelism.setSelection(parallelismIndex(settings.parallelism));
+        binding.spinnerPitchTracker.setSelection(pitchTrackerIndex(settings.pitchTracker));
+        binding.switchFloatPipeline.setChecked(settings.floatPipeline);
+        binding.switchLowLatency.setChecked(settings.lowLatency);
+        binding.switchTrackingSearch.setChecked(settings.trackingSearch);
+        binding.switchPerfOverlay.setChecked(settings.perfOverlay);
+        initializingModes = false;
+        updateParallelismControl(settings);
+    }
+
+    // Worker threads only split the direct lag loops; with FFT differences the setting does nothing.
+    private void updateParallelismControl(@NonNull TunerSettings settings) {
+        boolean direct = settings.differenceMode == DifferenceMode.DIRECT;
+        binding.labelParallelism.setEnabled(direct);
+        binding.spinnerParallelism.setEnabled(direct);
     }
 
     private void showInfoDialog() {
         String message = "窗口大小：参与分析的采样点数。越大越稳、抗噪更好，但响应更慢、对快速变化不敏感。\n\n"
                 + "平滑系数：频率平滑的权重（指数平滑）。越小越稳、抖动更少，但反应更迟钝；越大越灵敏但更抖。\n\n"
                 + "噪声门限(dB)：低于该 RMS dB 时认为无信号。阈值越高越容易忽略弱音，越低越容易把噪声当成信号。\n\n"
-                + "YIN 阈值：CMNDF 的置信门槛。越小越严格、误检更少但可能漏检；越大更容易出结果但可能不稳定。";
+                + "YIN 阈值：CMNDF 的置信门槛。越小越严格、误检更少但可能漏检；越大更容易出结果但可能不稳定。\n\n"
+                + "差分算法：FFT 用自相关快速计算 YIN 差分函数，结果与直接计算一致，但大窗口下耗电明显更低。\n\n"
+                + "单精度浮点：以 float32 采集和计算，缓冲区内存减半；频率与双精度结果相差不到 0.1 音分。\n\n"
+                + "过载策略：分析线程跟不上采集时的处理方式。合并只分析最新的窗口，延迟最低；丢弃最旧会按顺序分析最近几帧，读数更连贯。\n\n"
+                + "低频降采样：长周期（低音弦）部分在降采样后的信号上搜索，高音部分仍用原始采样率，最后在原始采样率上精修，计算量可降低数倍而精度基本不变。\n\n"
+                + "并行线程：仅在差分算法为直接计算时可选（FFT 下不可用），窗口不小于 8192 时把周期搜索范围分给多个线程同时计算，结果不变；小窗口仍在单线程上运行。\n\n"
+                + "读数跟踪：平滑先取最近 5 次检测的中值再做指数平滑，在目标弦 20 音分内连续 3 次才算稳定；卡尔曼按音高和变化速度预测下一次读数，偏离预测太远的检测（如跳八度）会被丢弃，换弦时也能立即跟上；稳定判定与平滑相同，读数抖动不高于平滑。\n\n"
+                + "低延迟模式：缩短每次读取的帧数，并按当前所弹的弦选择分析窗口（约 8 个周期），高音弦不再等满整个窗口；拨弦或换弦时先用覆盖最低弦的窗口重新识别。\n\n"
+                + "锁定后窄带跟踪：连续几帧音高稳定后，只在当前音高上下一个半音内搜索周期，结果与全范围搜索一致；音高跑出范围或跳八度时自动回到全范围搜索。\n\n"
+                + "性能浮层：在主界面显示每跳各阶段（入环、电平、检测、滤波、回调）耗时的 P50/P99/最大值、每秒跳数和超出跳长预算的次数；长按浮层可导出最近的分析轨迹（Chrome trace JSON）。使用麦克风时底部还会显示采集统计：采集方式（回调/阻塞）、xrun、读超时、短读、错误次数（回调方式另有丢帧数），以及读取间隔的均值±抖动和 burst/缓冲区大小。";
         new AlertDialog.Builder(this)
                 .setTitle("参数说明")
                 .setMessage(message)
@@ -139,7 +317,7 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
 
     private void applySettings(@NonNull TunerSettings updated) {
         currentSettings = updated;
-        currentSettings.save(this);
+        currentSettings.save(SharedPreferencesStore.of(this));
     }
 
     private void applyEdgeInsets(android.view.View root) {
@@ -162,4 +340,49 @@ public class AlgorithmSettingsActivity extends AppCompatActivity {
         }
         return 3;
     }
+
+    private int differenceModeIndex(DifferenceMode mode) {
+        for (int i = 0; i < DIFFERENCE_MODES.length; i++) {
+            if (DIFFERENCE_MODES[i] == mode) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int overloadPolicyIndex(OverloadPolicy policy) {
+        for (int i = 0; i < OVERLOAD_POLICIES.length; i++) {
+            if (OVERLOAD_POLICIES[i] == policy) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int decimationIndex(int decimation) {
+        for (int i = 0; i < TunerSettings.DECIMATION_OPTIONS.length; i++) {
+            if (TunerSettings.DECIMATION_OPTIONS[i] == decimation) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int parallelismIndex(int parallelism) {
+        for (int i = 0; i < TunerSettings.PARALLELISM_OPTIONS.length; i++) {
+            if (TunerSettings.PARALLELISM_OPTIONS[i] == parallelism) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private int pitchTrackerIndex(PitchTrackerMode mode) {
+        for (int i = 0; i < PITCH_TRACKERS.length; i++) {
+            if (PITCH_TRACKERS[i] == mode) {
+                return i;
+            }
+        }
+        return 0;
+    }
 }
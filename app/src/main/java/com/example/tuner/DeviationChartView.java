@@ -0,0 +1,133 @@
+package com.example.tuner;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Draws the last {@link #HISTORY_WINDOW_SECONDS} of semitone deviation straight from a
+ * {@link DeviationHistory}. Callers append points and call {@link #invalidate()}; the framework
+ * coalesces those into at most one draw per frame, and drawing itself allocates nothing.
+ */
+public class DeviationChartView extends View {
+
+    static final float HISTORY_WINDOW_SECONDS = 5f;
+    // Enough for the full window at a 120 Hz display; older points are evicted first anyway.
+    static final int HISTORY_CAPACITY = 1024;
+    private static final float Y_PADDING_SEMITONES = 0.05f;
+    private static final float MIN_Y_RANGE_SEMITONES = 0.1f;
+    private static final float DEFAULT_Y_RANGE_SEMITONES = 0.5f;
+
+    private final DeviationHistory history = new DeviationHistory(HISTORY_CAPACITY);
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint zeroPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float[] segments = new float[HISTORY_CAPACITY * 4];
+    private final char[] labelChars = new char[16];
+    private final float density;
+    private final float labelWidth;
+
+    public DeviationChartView(Context context) {
+        this(context, null);
+    }
+
+    public DeviationChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(2f * density);
+        linePaint.setColor(ContextCompat.getColor(context, android.R.color.holo_blue_light));
+        zeroPaint.setStrokeWidth(2f * density);
+        zeroPaint.setColor(ContextCompat.getColor(context, android.R.color.darker_gray));
+        labelPaint.setTextSize(10f * getResources().getDisplayMetrics().scaledDensity);
+        labelWidth = labelPaint.measureText("+0.00");
+    }
+
+    void setLabelColor(int color) {
+        labelPaint.setColor(color);
+        invalidate();
+    }
+
+    void clear() {
+        history.clear();
+        invalidate();
+    }
+
+    void append(float timeSeconds, float semitones) {
+        history.add(timeSeconds, semitones);
+        history.evictBefore(timeSeconds - HISTORY_WINDOW_SECONDS);
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        float left = getPaddingLeft() + labelWidth + 4f * density;
+        float top = getPaddingTop() + 4f * density;
+        float right = getWidth() - getPaddingRight() - 4f * density;
+        float bottom = getHeight() - getPaddingBottom() - 4f * density;
+        if (right <= left || bottom <= top) {
+            return;
+        }
+
+        float axisMin = -DEFAULT_Y_RANGE_SEMITONES;
+        float axisMax = DEFAULT_Y_RANGE_SEMITONES;
+        int count = history.size();
+        if (count > 0) {
+            float min = history.min();
+            float max = history.max();
+            if (min == max) {
+                min -= MIN_Y_RANGE_SEMITONES / 2f;
+                max += MIN_Y_RANGE_SEMITONES / 2f;
+            }
+            float padding = Math.max(Y_PADDING_SEMITONES, (max - min) * 0.1f);
+            axisMin = min - padding;
+            axisMax = max + padding;
+            if (axisMax - axisMin < MIN_Y_RANGE_SEMITONES) {
+                float center = (axisMin + axisMax) / 2f;
+                axisMin = center - MIN_Y_RANGE_SEMITONES / 2f;
+                axisMax = center + MIN_Y_RANGE_SEMITONES / 2f;
+            }
+        }
+        float yScale = (bottom - top) / (axisMax - axisMin);
+
+        if (axisMin < 0 && axisMax > 0) {
+            float zeroY = bottom - (0 - axisMin) * yScale;
+            canvas.drawLine(left, zeroY, right, zeroY, zeroPaint);
+        }
+        drawLabel(canvas, axisMax, top - labelPaint.ascent());
+        drawLabel(canvas, axisMin, bottom);
+
+        if (count < 2) {
+            return;
+        }
+        float endTime = history.latestTime();
+        float startTime = endTime - HISTORY_WINDOW_SECONDS;
+        float xScale = (right - left) / HISTORY_WINDOW_SECONDS;
+        float prevX = left + (history.timeAt(0) - startTime) * xScale;
+        float prevY = bottom - (history.valueAt(0) - axisMin) * yScale;
+        int used = 0;
+        for (int i = 1; i < count; i++) {
+            float x = left + (history.timeAt(i) - startTime) * xScale;
+            float y = bottom - (history.valueAt(i) - axisMin) * yScale;
+            segments[used++] = prevX;
+            segments[used++] = prevY;
+            segments[used++] = x;
+            segments[used++] = y;
+            prevX = x;
+            prevY = y;
+        }
+        canvas.drawLines(segments, 0, used, linePaint);
+    }
+
+    private void drawLabel(Canvas canvas, float value, float baseline) {
+        int length = DecimalText.format(labelChars, value, true, "");
+        canvas.drawText(labelChars, 0, length, getPaddingLeft(), baseline, labelPaint);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.tuner;
+
+/**
+ * Fixed-capacity ring of (time, value) samples for the deviation chart, with sliding-window
+ * min/max kept in monotonic deques so adding, evicting and querying the range are all O(1)
+ * amortised and allocation-free.
+ */
+final class DeviationHistory {
+
+    private final int capacity;
+    private final float[] times;
+    private final float[] values;
+    // Sequence numbers of candidate extremes; values along each deque are monotonic.
+    private final long[] minDeque;
+    private final long[] maxDeque;
+    private long first = 0;     // sequence number of the oldest retained sample
+    private long next = 0;      // sequence number the next sample will get
+    private int minHead = 0;
+    private int minSize = 0;
+    private int maxHead = 0;
+    private int maxSize = 0;
+
+    DeviationHistory(int capacity) {
+        this.capacity = capacity;
+        times = new float[capacity];
+        values = new float[capacity];
+        minDeque = new long[capacity];
+        maxDeque = new long[capacity];
+    }
+
+    void clear() {
+        first = 0;
+        next = 0;
+        minHead = 0;
+        minSize = 0;
+        maxHead = 0;
+        maxSize = 0;
+    }
+
+    int size() {
+        return (int) (next - first);
+    }
+
+    float timeAt(int index) {
+        return times[slot(first + index)];
+    }
+
+    float valueAt(int index) {
+        return values[slot(first + index)];
+    }
+
+    float latestTime() {
+        return times[slot(next - 1)];
+    }
+
+    // Only valid while size() > 0.
+    float min() {
+        return values[slot(minDeque[minHead])];
+    }
+
+    float max() {
+        return values[slot(maxDeque[maxHead])];
+    }
+
+    void add(float time, float value) {
+        if (size() == capacity) {
+            evictOldest();
+        }
+        long seq = next++;
+        times[slot(seq)] = time;
+        values[slot(seq)] = value;
+
+        while (minSize > 0 && values[slot(minDeque[dequeIndex(minHead, minSize - 1)])] >= value) {
+            minSize--;
+        }
+        minDeque[dequeIndex(minHead, minSize++)] = seq;
+        while (maxSize > 0 && values[slot(maxDeque[dequeIndex(maxHead, maxSize - 1)])] <= value) {
+            maxSize--;
+        }
+        maxDeque[dequeIndex(maxHead, maxSize++)] = seq;
+    }
+
+    void evictBefore(float minTime) {
+        while (size() > 0 && times[slot(first)] < minTime) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        if (minSize > 0 && minDeque[minHead] == first) {
+            minHead = dequeIndex(minHead, 1);
+            minSize--;
+        }
+        if (maxSize > 0 && maxDeque[maxHead] == first) {
+            maxHead = dequeIndex(maxHead, 1);
+            maxSize--;
+        }
+        first++;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private int dequeIndex(int head, int offset) {
+        int index = head + offset;
+        return index >= capacity ? index - capacity : index;
+    }
+}
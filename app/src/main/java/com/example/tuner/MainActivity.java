@@ -5,6 +5,8 @@ import android.content.pm.PackageManager;
 import android.content.Intent;
 import android.os.Bundle;
 import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -16,34 +18,74 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowCompat;
 
 import com.example.tuner.databinding.ActivityMainBinding;
-import com.github.mikephil.charting.charts.LineChart;
-import com.github.mikephil.charting.components.LimitLine;
-import com.github.mikephil.charting.components.XAxis;
-import com.github.mikephil.charting.components.YAxis;
-import com.github.mikephil.charting.data.Entry;
-import com.github.mikephil.charting.data.LineData;
-import com.github.mikephil.charting.data.LineDataSet;
-import com.github.mikephil.charting.formatter.ValueFormatter;
-
-import java.util.ArrayList;
-import java.text.DecimalFormat;
-import java.util.List;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class MainActivity extends AppCompatActivity implements TunerEngine.Listener {
 
-    private static final DecimalFormat FREQ_FORMAT = new DecimalFormat("0.00");
-    private static final DecimalFormat SEMITONE_FORMAT = new DecimalFormat("+0.00;-0.00");
-    private static final float HISTORY_WINDOW_SECONDS = 5f;
-    private static final float Y_PADDING_SEMITONES = 0.05f;
-    private static final float MIN_Y_RANGE_SEMITONES = 0.1f;
+    private static final String FREQ_SUFFIX = " Hz";
+    private static final String SEMITONE_SUFFIX = " 半音";
+    private static final String STATUS_STABLE = "已稳定";
+    private static final String STATUS_DETECTING = "检测中…";
+    private static final String STRUM_NOT_HEARD = "—";
+    private static final long OVERLAY_INTERVAL_NANOS = 500_000_000L;
+    private static final int OVERLAY_COLUMN = 7;
 
     private ActivityMainBinding binding;
     private TunerEngine tunerEngine;
+    // Capture keeps running while the settings screens are in front, so edits apply live on return.
+    private VisibleActivities visibleActivities;
     private ActivityResultLauncher<String> permissionLauncher;
     private int neutralColor;
-    private LineChart deviationChart;
-    private LineDataSet deviationDataSet;
-    private final List<Entry> deviationEntries = new ArrayList<>();
+    private int inTuneColor;
+    private int nearColor;
+    private int offColor;
+    private String listeningText;
+    private CharSequence noSignalText;
+    // Analysis thread publishes every hop; the UI takes the newest once per display frame.
+    private final PitchResultSlot pitchSlot = new PitchResultSlot();
+    private final PitchResult displayed = new PitchResult();
+    private final char[] frequencyChars = new char[32];
+    private final char[] centsChars = new char[32];
+    private final char[] strumChars = new char[TunerSettings.DEFAULT_STRING_NOTES.length * 32];
+    private final char[] strumValueChars = new char[32];
+    private final long[] lastStrumCents = new long[TunerSettings.DEFAULT_STRING_NOTES.length];
+    // Performance overlay: two snapshots so the hop rate covers the last refresh interval.
+    private final StageTimings.Snapshot timingSnapshot = new StageTimings.Snapshot();
+    private final StageTimings.Snapshot previousTimingSnapshot = new StageTimings.Snapshot();
+    private final char[] overlayChars = new char[(StageTimings.STAGES + 4) * 48];
+    private final char[] overlayNumber = new char[32];
+    private long lastOverlayNanos = 0;
+    private long lastFrequencyHundredths = Long.MIN_VALUE;
+    private long lastCentsHundredths = Long.MIN_VALUE;
+    private int lastCentsColor = 0;
+    private CharSequence lastStatus;
+    private String lastStringName;
+    private boolean frameLoopActive = false;
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!frameLoopActive) {
+                return;
+            }
+            if (pitchSlot.consume(displayed)) {
+                renderResult(displayed);
+            }
+            if (currentSettings.perfOverlay && frameTimeNanos - lastOverlayNanos >= OVERLAY_INTERVAL_NANOS) {
+                lastOverlayNanos = frameTimeNanos;
+                renderTimings();
+            }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    };
+    private DeviationChartView deviationChart;
     private long chartStartMs = 0;
     private TunerSettings currentSettings;
     private boolean isTunerRunning = false;
@@ -57,12 +99,23 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
         setContentView(binding.getRoot());
         applyEdgeInsets(binding.getRoot());
 
-        tunerEngine = new TunerEngine(this);
+        tunerEngine = new TunerEngine(this, new OboeAudioSource());
+        visibleActivities = new VisibleActivities(this::stopTuner);
+        getApplication().registerActivityLifecycleCallbacks(visibleActivities);
         neutralColor = binding.centsOffset.getCurrentTextColor();
+        inTuneColor = ContextCompat.getColor(this, android.R.color.holo_green_light);
+        nearColor = ContextCompat.getColor(this, android.R.color.holo_orange_light);
+        offColor = ContextCompat.getColor(this, android.R.color.holo_red_light);
+        listeningText = getString(R.string.listening);
+        noSignalText = getText(R.string.no_signal);
         setupChart(binding.deviationChart);
         loadSettings();
         binding.openSettings.setOnClickListener(v ->
                 startActivity(new Intent(this, SettingsActivity.class)));
+        binding.perfOverlay.setOnLongClickListener(v -> {
+            exportTrace();
+            return true;
+        });
 
         permissionLauncher = registerForActivityResult(
                 new ActivityResultContracts.RequestPermission(),
@@ -85,8 +138,14 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
     @Override
     protected void onPause() {
         super.onPause();
-        isTunerRunning = false;
-        tunerEngine.stop();
+        stopFrameLoop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        getApplication().unregisterActivityLifecycleCallbacks(visibleActivities);
+        stopTuner();
     }
 
     private void ensurePermission() {
@@ -99,14 +158,37 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
     }
 
     private void startTuner() {
-        resetChart();
+        if (!isTunerRunning) {
+            resetChart();
+        }
         isTunerRunning = true;
         tunerEngine.start();
+        startFrameLoop();
+    }
+
+    // No activity of the app is visible any more: release the microphone.
+    private void stopTuner() {
+        isTunerRunning = false;
+        tunerEngine.stop();
+        stopFrameLoop();
+    }
+
+    private void startFrameLoop() {
+        if (frameLoopActive) {
+            return;
+        }
+        frameLoopActive = true;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+
+    private void stopFrameLoop() {
+        frameLoopActive = false;
+        Choreographer.getInstance().removeFrameCallback(frameCallback);
     }
 
     @Override
     public void onPitch(PitchResult result) {
-        runOnUiThread(() -> renderResult(result));
+        pitchSlot.publish(result);
     }
 
     @Override
@@ -122,39 +204,217 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
 
     private void renderResult(@NonNull PitchResult result) {
         if (!result.hasSignal) {
-            binding.stringName.setText(getString(R.string.listening));
-            binding.frequency.setText("0.00 Hz");
-            binding.centsOffset.setText("+0.00 半音");
-            binding.centsOffset.setTextColor(neutralColor);
-            binding.status.setText(R.string.no_signal);
+            setStringName(listeningText);
+            setFrequency(0);
+            setCents(0, neutralColor);
+            setStatus(noSignalText);
         } else {
-            binding.stringName.setText(result.nearestString);
-            binding.frequency.setText(FREQ_FORMAT.format(result.frequencyHz) + " Hz");
-            binding.centsOffset.setText(SEMITONE_FORMAT.format(result.cents / 100.0) + " 半音");
+            setStringName(result.nearestString);
+            setFrequency(result.frequencyHz);
 
             double abs = Math.abs(result.cents);
             int color;
             if (abs < 3) {
-                color = ContextCompat.getColor(this, android.R.color.holo_green_light);
+                color = inTuneColor;
             } else if (abs < 10) {
-                color = ContextCompat.getColor(this, android.R.color.holo_orange_light);
+                color = nearColor;
             } else {
-                color = ContextCompat.getColor(this, android.R.color.holo_red_light);
+                color = offColor;
             }
-            binding.centsOffset.setTextColor(color);
-            binding.status.setText(result.stable ? "已稳定" : "检测中…");
+            setCents(result.cents / 100.0, color);
+            setStatus(result.stable ? STATUS_STABLE : STATUS_DETECTING);
         }
 
+        if (result.strumStrings > 0) {
+            setStrumReadings(result);
+        }
         appendDeviation(result);
     }
 
-    private void loadSettings() {
-        currentSettings = TunerSettings.load(this);
-        tunerEngine.stop();
-        tunerEngine.applyConfig(currentSettings);
-        if (isTunerRunning) {
-            tunerEngine.start();
+    // One line per string, lowest first: "6弦 E2  +0.05 半音", or a dash when it was not heard.
+    private void setStrumReadings(@NonNull PitchResult result) {
+        boolean changed = false;
+        for (int i = 0; i < result.strumStrings; i++) {
+            long cents = result.stringHeard[i] ? Math.round(result.stringCents[i]) : Long.MIN_VALUE;
+            if (cents != lastStrumCents[i]) {
+                lastStrumCents[i] = cents;
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        int pos = 0;
+        for (int i = 0; i < result.strumStrings; i++) {
+            if (i > 0) {
+                strumChars[pos++] = '\n';
+            }
+            strumChars[pos++] = (char) ('0' + result.strumStrings - i);
+            strumChars[pos++] = '弦';
+            strumChars[pos++] = ' ';
+            String note = currentSettings.stringNotes[i];
+            note.getChars(0, note.length(), strumChars, pos);
+            pos += note.length();
+            strumChars[pos++] = ' ';
+            strumChars[pos++] = ' ';
+            if (result.stringHeard[i]) {
+                int length = DecimalText.format(strumValueChars, result.stringCents[i] / 100.0, true, SEMITONE_SUFFIX);
+                System.arraycopy(strumValueChars, 0, strumChars, pos, length);
+                pos += length;
+            } else {
+                STRUM_NOT_HEARD.getChars(0, STRUM_NOT_HEARD.length(), strumChars, pos);
+                pos += STRUM_NOT_HEARD.length();
+            }
+        }
+        binding.strumReadings.setText(strumChars, 0, pos);
+    }
+
+    //         p50    p99    max ms
+    // detect   1.23   4.56   7.89
+    // ...one row per stage, then the hop rate and hops over budget, then capture health once the
+    // source has reported: capture mode, xruns/timeouts/short reads/errors (plus dropped frames in
+    // callback mode) and the read interval mean±jitter.
+    private void renderTimings() {
+        previousTimingSnapshot.copyFrom(timingSnapshot);
+        tunerEngine.timings().snapshot(timingSnapshot);
+        int pos = appendPadded("", 8, 0);
+        pos = appendPadded("p50", OVERLAY_COLUMN, pos);
+        pos = appendPadded("p99", OVERLAY_COLUMN, pos);
+        pos = appendPadded("max", OVERLAY_COLUMN, pos);
+        pos = appendPadded(" ms", 0, pos);
+        for (int stage = 0; stage < StageTimings.STAGES; stage++) {
+            overlayChars[pos++] = '\n';
+            String name = StageTimings.STAGE_NAMES[stage];
+            name.getChars(0, name.length(), overlayChars, pos);
+            pos = appendPadded("", 8 - name.length(), pos + name.length());
+            pos = appendMillis(timingSnapshot.percentileNanos(stage, 0.5), pos);
+            pos = appendMillis(timingSnapshot.percentileNanos(stage, 0.99), pos);
+            pos = appendMillis(timingSnapshot.maxNanos(stage), pos);
+        }
+        overlayChars[pos++] = '\n';
+        double rate = timingSnapshot.hops >= previousTimingSnapshot.hops
+                ? timingSnapshot.hopsPerSecondSince(previousTimingSnapshot) : 0;
+        int length = DecimalText.format(overlayNumber, rate, false, " 跳/秒  超预算 ");
+        System.arraycopy(overlayNumber, 0, overlayChars, pos, length);
+        pos += length;
+        pos = DecimalText.appendLong(overlayChars, timingSnapshot.overruns, pos);
+        overlayChars[pos++] = '/';
+        pos = DecimalText.appendLong(overlayChars, timingSnapshot.hops, pos);
+        CaptureStats capture = tunerEngine.captureStats();
+        if (capture.reports > 0) {
+            pos = appendPadded(capture.callbackMode ? "\n回调 xrun " : "\n阻塞 xrun ", 0, pos);
+            long xRuns = capture.xRuns;
+            pos = xRuns < 0 ? appendPadded("-", 0, pos) : DecimalText.appendLong(overlayChars, xRuns, pos);
+            pos = appendPadded("  超时 ", 0, pos);
+            pos = DecimalText.appendLong(overlayChars, capture.timeouts, pos);
+            pos = appendPadded("  短读 ", 0, pos);
+            pos = DecimalText.appendLong(overlayChars, capture.shortReads, pos);
+            pos = appendPadded("  错误 ", 0, pos);
+            pos = DecimalText.appendLong(overlayChars, capture.errors, pos);
+            if (capture.callbackMode) {
+                pos = appendPadded("  丢帧 ", 0, pos);
+                pos = DecimalText.appendLong(overlayChars, capture.droppedFrames, pos);
+            }
+            pos = appendPadded("\n间隔 ", 0, pos);
+            pos = appendDecimal(capture.meanIntervalNanos / 1e6, "±", pos);
+            pos = appendDecimal(capture.jitterNanos / 1e6, " (max ", pos);
+            pos = appendDecimal(capture.maxIntervalNanos / 1e6, ") ms  burst ", pos);
+            pos = DecimalText.appendLong(overlayChars, capture.framesPerBurst, pos);
+            overlayChars[pos++] = '/';
+            pos = DecimalText.appendLong(overlayChars, capture.bufferSizeFrames, pos);
+        }
+        binding.perfOverlay.setText(overlayChars, 0, pos);
+    }
+
+    // Right-aligns text in a column of the given width.
+    private int appendPadded(String text, int width, int pos) {
+        for (int i = text.length(); i < width; i++) {
+            overlayChars[pos++] = ' ';
+        }
+        text.getChars(0, text.length(), overlayChars, pos);
+        return pos + text.length();
+    }
+
+    private int appendMillis(long nanos, int pos) {
+        int length = DecimalText.format(overlayNumber, nanos / 1e6, false, "");
+        for (int i = length; i < OVERLAY_COLUMN; i++) {
+            overlayChars[pos++] = ' ';
         }
+        System.arraycopy(overlayNumber, 0, overlayChars, pos, length);
+        return pos + length;
+    }
+
+    private int appendDecimal(double value, String suffix, int pos) {
+        int length = DecimalText.format(overlayNumber, value, false, suffix);
+        System.arraycopy(overlayNumber, 0, overlayChars, pos, length);
+        return pos + length;
+    }
+
+    // Writes the engine's retained hops as a Chrome trace under the app's external files dir.
+    private void exportTrace() {
+        File dir = getExternalFilesDir("traces");
+        File file = new File(dir != null ? dir : getFilesDir(), "tuner-" + System.currentTimeMillis() + ".trace.json");
+        StageTimings timings = tunerEngine.timings();
+        new Thread(() -> {
+            String message;
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+                timings.writeTrace(out);
+                message = "轨迹已导出：" + file.getAbsolutePath();
+            } catch (IOException e) {
+                message = "轨迹导出失败：" + e.getMessage();
+            }
+            String shown = message;
+            runOnUiThread(() ->
+                    android.widget.Toast.makeText(this, shown, android.widget.Toast.LENGTH_LONG).show());
+        }, "TraceExport").start();
+    }
+
+    // The setters below skip unchanged values so a steady reading costs no layout or text work.
+    private void setStringName(String name) {
+        if (!name.equals(lastStringName)) {
+            lastStringName = name;
+            binding.stringName.setText(name);
+        }
+    }
+
+    private void setFrequency(double frequencyHz) {
+        long hundredths = Math.round(frequencyHz * 100.0);
+        if (hundredths == lastFrequencyHundredths) {
+            return;
+        }
+        lastFrequencyHundredths = hundredths;
+        int length = DecimalText.format(frequencyChars, frequencyHz, false, FREQ_SUFFIX);
+        binding.frequency.setText(frequencyChars, 0, length);
+    }
+
+    private void setCents(double semitones, int color) {
+        long hundredths = Math.round(semitones * 100.0);
+        if (hundredths != lastCentsHundredths) {
+            lastCentsHundredths = hundredths;
+            int length = DecimalText.format(centsChars, semitones, true, SEMITONE_SUFFIX);
+            binding.centsOffset.setText(centsChars, 0, length);
+        }
+        if (color != lastCentsColor) {
+            lastCentsColor = color;
+            binding.centsOffset.setTextColor(color);
+        }
+    }
+
+    private void setStatus(CharSequence status) {
+        if (status != lastStatus) {
+            lastStatus = status;
+            binding.status.setText(status);
+        }
+    }
+
+    private void loadSettings() {
+        currentSettings = TunerSettings.load(SharedPreferencesStore.of(this));
+        binding.strumReadings.setVisibility(currentSettings.strumCheck ? View.VISIBLE : View.GONE);
+        Arrays.fill(lastStrumCents, Long.MAX_VALUE);
+        binding.perfOverlay.setVisibility(currentSettings.perfOverlay ? View.VISIBLE : View.GONE);
+        lastOverlayNanos = 0;
+        tunerEngine.reconfigure(currentSettings);
     }
 
     private void applyEdgeInsets(@NonNull android.view.View root) {
@@ -169,58 +429,15 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
         });
     }
 
-    private void setupChart(@NonNull LineChart chart) {
+    private void setupChart(@NonNull DeviationChartView chart) {
         deviationChart = chart;
-        deviationDataSet = new LineDataSet(deviationEntries, "偏差（半音）");
-        deviationDataSet.setMode(LineDataSet.Mode.CUBIC_BEZIER);
-        deviationDataSet.setLineWidth(2f);
-        deviationDataSet.setDrawCircles(false);
-        deviationDataSet.setDrawValues(false);
-        deviationDataSet.setColor(ContextCompat.getColor(this, android.R.color.holo_blue_light));
-
-        LineData data = new LineData(deviationDataSet);
-        chart.setData(data);
-        chart.getDescription().setEnabled(false);
-        chart.getLegend().setEnabled(false);
-        chart.setTouchEnabled(false);
-        chart.setDragEnabled(false);
-        chart.setScaleEnabled(false);
-        chart.setPinchZoom(false);
-        chart.setExtraOffsets(4f, 4f, 4f, 4f);
-
-        XAxis xAxis = chart.getXAxis();
-        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
-        xAxis.setDrawGridLines(false);
-        xAxis.setTextColor(neutralColor);
-        xAxis.setValueFormatter(new ValueFormatter() {
-            @Override
-            public String getFormattedValue(float value) {
-                return String.format("%.1fs", value);
-            }
-        });
-
-        YAxis left = chart.getAxisLeft();
-        left.removeAllLimitLines();
-        LimitLine zeroLine = new LimitLine(0f, "");
-        zeroLine.setLineWidth(2f);
-        zeroLine.setLineColor(ContextCompat.getColor(this, android.R.color.darker_gray));
-        left.addLimitLine(zeroLine);
-        left.setAxisMinimum(-0.5f);
-        left.setAxisMaximum(0.5f);
-        left.setDrawGridLines(true);
-        left.setTextColor(neutralColor);
-        left.setGranularity(0.1f);
-
-        chart.getAxisRight().setEnabled(false);
+        chart.setLabelColor(neutralColor);
     }
 
     private void resetChart() {
-        deviationEntries.clear();
         chartStartMs = 0;
-        if (deviationChart != null && deviationChart.getData() != null) {
-            deviationDataSet.notifyDataSetChanged();
-            deviationChart.getData().notifyDataChanged();
-            deviationChart.invalidate();
+        if (deviationChart != null) {
+            deviationChart.clear();
         }
     }
 
@@ -230,59 +447,6 @@ public class MainActivity extends AppCompatActivity implements TunerEngine.Liste
             chartStartMs = now;
         }
         float x = (now - chartStartMs) / 1000f;
-        if (result.hasSignal) {
-            deviationEntries.add(new Entry(x, (float) (result.cents / 100.0)));
-        } else {
-            deviationEntries.add(new Entry(x, 0f));
-        }
-
-        float minX = x - HISTORY_WINDOW_SECONDS;
-        while (!deviationEntries.isEmpty() && deviationEntries.get(0).getX() < minX) {
-            deviationEntries.remove(0);
-        }
-
-        updateYAxis();
-        deviationDataSet.notifyDataSetChanged();
-        deviationChart.getData().notifyDataChanged();
-        deviationChart.notifyDataSetChanged();
-        deviationChart.setVisibleXRangeMaximum(HISTORY_WINDOW_SECONDS);
-        deviationChart.moveViewToX(x);
-    }
-
-    private void updateYAxis() {
-        if (deviationEntries.isEmpty()) {
-            return;
-        }
-        float min = Float.MAX_VALUE;
-        float max = -Float.MAX_VALUE;
-        for (Entry entry : deviationEntries) {
-            float y = entry.getY();
-            if (y < min) {
-                min = y;
-            }
-            if (y > max) {
-                max = y;
-            }
-        }
-        if (min == Float.MAX_VALUE || max == -Float.MAX_VALUE) {
-            return;
-        }
-        if (min == max) {
-            min -= MIN_Y_RANGE_SEMITONES / 2f;
-            max += MIN_Y_RANGE_SEMITONES / 2f;
-        }
-        float padding = Math.max(Y_PADDING_SEMITONES, (max - min) * 0.1f);
-        float axisMin = min - padding;
-        float axisMax = max + padding;
-        if (axisMax - axisMin < MIN_Y_RANGE_SEMITONES) {
-            float center = (axisMin + axisMax) / 2f;
-            axisMin = center - MIN_Y_RANGE_SEMITONES / 2f;
-            axisMax = center + MIN_Y_RANGE_SEMITONES / 2f;
-        }
-        YAxis left = deviationChart.getAxisLeft();
-        left.setAxisMinimum(axisMin);
-        left.setAxisMaximum(axisMax);
+        deviationChart.append(x, result.hasSignal ? (float) (result.cents / 100.0) : 0f);
     }
 }
-
-
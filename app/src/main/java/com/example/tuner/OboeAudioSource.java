@@ -0,0 +1,147 @@
+package com.example.tuner;
+
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+/** Microphone capture through Oboe; the native read thread calls back into this object. */
+final class OboeAudioSource implements AudioSource {
+
+    private static final String TAG = "OboeAudioSource";
+
+    // Capture stats slots written by native before each onCaptureStats; keep in sync with StatSlot.
+    private static final int STAT_READS = 0;
+    private static final int STAT_FRAMES = 1;
+    private static final int STAT_SHORT_READS = 2;
+    private static final int STAT_TIMEOUTS = 3;
+    private static final int STAT_ERRORS = 4;
+    private static final int STAT_XRUNS = 5;
+    private static final int STAT_EXPECTED_INTERVAL_NS = 6;
+    private static final int STAT_MEAN_INTERVAL_NS = 7;
+    private static final int STAT_JITTER_NS = 8;
+    private static final int STAT_MAX_INTERVAL_NS = 9;
+    private static final int STAT_FRAMES_PER_READ = 10;
+    private static final int STAT_FRAMES_PER_BURST = 11;
+    private static final int STAT_BUFFER_SIZE = 12;
+    private static final int STAT_BUFFER_CAPACITY = 13;
+    private static final int STAT_DROPPED_FRAMES = 14;
+    private static final int STAT_CALLBACK_MODE = 15;
+    private static final int STAT_SLOTS = 16;
+
+    static {
+        System.loadLibrary("tuner");
+    }
+
+    private volatile Sink sink;
+    private boolean floatSamples;
+    // Direct buffer shared with native; reads land here and only the frame count crosses JNI.
+    private ByteBuffer pcmBuffer;
+    private ShortBuffer pcmSamples;
+    private FloatBuffer pcmFloats;
+    private final ByteBuffer statsBuffer =
+            ByteBuffer.allocateDirect(STAT_SLOTS * 8).order(ByteOrder.nativeOrder());
+    private final LongBuffer statsSlots = statsBuffer.asLongBuffer();
+    private final CaptureStats stats = new CaptureStats();
+
+    @Override
+    public boolean start(int requestedSampleRate, int framesPerRead, boolean floatSamples, Sink sink) {
+        this.sink = sink;
+        this.floatSamples = floatSamples;
+        ensurePcmBuffer(framesPerRead * (floatSamples ? 4 : 2));
+        stats.clear();
+        boolean started = nativeStart(requestedSampleRate, framesPerRead, pcmBuffer, floatSamples, statsBuffer);
+        if (!started) {
+            Log.w(TAG, "Native audio engine failed to start");
+            this.sink = null;
+        }
+        return started;
+    }
+
+    @Override
+    public void stop() {
+        nativeStop();
+        sink = null;
+    }
+
+    private void ensurePcmBuffer(int bytes) {
+        if (pcmBuffer != null && pcmBuffer.capacity() >= bytes) {
+            return;
+        }
+        pcmBuffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        pcmSamples = pcmBuffer.asShortBuffer();
+        pcmFloats = pcmBuffer.asFloatBuffer();
+    }
+
+    // Fallback transport used when native could not bind the direct buffer.
+    private void onPcm(short[] buffer, int read) {
+        Sink target = sink;
+        if (target != null) {
+            target.onPcm(buffer, read);
+        }
+    }
+
+    // The buffer holds floats when the float pipeline was requested; native only binds it then.
+    private void onPcmDirect(int read) {
+        Sink target = sink;
+        if (target == null) {
+            return;
+        }
+        if (floatSamples) {
+            target.onPcm(pcmFloats, read);
+        } else {
+            target.onPcm(pcmSamples, read);
+        }
+    }
+
+    private void onStreamConfig(int actualSampleRate) {
+        Sink target = sink;
+        if (target != null) {
+            target.onStreamConfig(actualSampleRate);
+        }
+    }
+
+    private void onAudioApi(int api) {
+        Sink target = sink;
+        if (target != null) {
+            // 1 = AAudio (see oboe::AudioApi mapping in native)
+            target.onAudioApiUsed(api == 1);
+        }
+    }
+
+    // Called from the read thread about once a second, after native filled the stats slots.
+    private void onCaptureStats() {
+        Sink target = sink;
+        if (target == null) {
+            return;
+        }
+        stats.reads = statsSlots.get(STAT_READS);
+        stats.frames = statsSlots.get(STAT_FRAMES);
+        stats.shortReads = statsSlots.get(STAT_SHORT_READS);
+        stats.timeouts = statsSlots.get(STAT_TIMEOUTS);
+        stats.errors = statsSlots.get(STAT_ERRORS);
+        stats.xRuns = statsSlots.get(STAT_XRUNS);
+        stats.expectedIntervalNanos = statsSlots.get(STAT_EXPECTED_INTERVAL_NS);
+        stats.meanIntervalNanos = statsSlots.get(STAT_MEAN_INTERVAL_NS);
+        stats.jitterNanos = statsSlots.get(STAT_JITTER_NS);
+        stats.maxIntervalNanos = statsSlots.get(STAT_MAX_INTERVAL_NS);
+        stats.framesPerRead = (int) statsSlots.get(STAT_FRAMES_PER_READ);
+        stats.framesPerBurst = (int) statsSlots.get(STAT_FRAMES_PER_BURST);
+        stats.bufferSizeFrames = (int) statsSlots.get(STAT_BUFFER_SIZE);
+        stats.bufferCapacityFrames = (int) statsSlots.get(STAT_BUFFER_CAPACITY);
+        stats.droppedFrames = statsSlots.get(STAT_DROPPED_FRAMES);
+        stats.callbackMode = statsSlots.get(STAT_CALLBACK_MODE) != 0;
+        stats.reports++;
+        target.onCaptureStats(stats);
+    }
+
+    private native boolean nativeStart(int requestedSampleRate,
+                                       int framesPerRead,
+                                       ByteBuffer pcmBuffer,
+                                       boolean floatFormat,
+                                       ByteBuffer statsBuffer);
+    private native void nativeStop();
+}
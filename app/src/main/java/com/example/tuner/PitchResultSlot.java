@@ -0,0 +1,36 @@
+package com.example.tuner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conflating hand-off of the newest {@link PitchResult} from the analysis thread to the UI.
+ * Triple buffered: the writer fills its back buffer and swaps it into the middle, the reader
+ * swaps the middle out when it is marked fresh. Neither side blocks or allocates, and any
+ * results published between two reads are simply superseded.
+ */
+final class PitchResultSlot {
+
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final PitchResult[] buffers = {new PitchResult(), new PitchResult(), new PitchResult()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    // Writer thread only.
+    void publish(PitchResult result) {
+        buffers[back].copyFrom(result);
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    // Reader thread only. Copies the newest result into {@code out}; false if nothing new arrived.
+    boolean consume(PitchResult out) {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        out.copyFrom(buffers[front]);
+        return true;
+    }
+}
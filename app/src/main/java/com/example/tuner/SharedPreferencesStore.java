@@ -0,0 +1,74 @@
+package com.example.tuner;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/** {@link SettingsStore} backed by the app's "tuner_settings" shared preferences. */
+final class SharedPreferencesStore implements SettingsStore {
+
+    private final SharedPreferences prefs;
+
+    private SharedPreferencesStore(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    static SettingsStore of(Context context) {
+        return new SharedPreferencesStore(
+                context.getSharedPreferences("tuner_settings", Context.MODE_PRIVATE));
+    }
+
+    @Override
+    public int getInt(String key, int fallback) {
+        return prefs.getInt(key, fallback);
+    }
+
+    @Override
+    public float getFloat(String key, float fallback) {
+        return prefs.getFloat(key, fallback);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean fallback) {
+        return prefs.getBoolean(key, fallback);
+    }
+
+    @Override
+    public String getString(String key, String fallback) {
+        return prefs.getString(key, fallback);
+    }
+
+    @Override
+    public Editor edit() {
+        SharedPreferences.Editor editor = prefs.edit();
+        return new Editor() {
+            @Override
+            public Editor putInt(String key, int value) {
+                editor.putInt(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                editor.putFloat(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                editor.putBoolean(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putString(String key, String value) {
+                editor.putString(key, value);
+                return this;
+            }
+
+            @Override
+            public void apply() {
+                editor.apply();
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.example.tuner;
 
 import android.os.Bundle;
 import android.view.View;
+import android.view.inputmethod.EditorInfo;
 import android.widget.ArrayAdapter;
 import android.widget.Spinner;
 
@@ -12,9 +13,15 @@ import androidx.core.view.WindowInsetsCompat;
 import androidx.core.view.WindowCompat;
 
 import com.example.tuner.databinding.ActivityTuningSettingsBinding;
+import com.google.android.material.slider.Slider;
 
 public class TuningSettingsActivity extends AppCompatActivity {
 
+    // Position 0 listens for every string; position i tunes stringNotes[i - 1] only.
+    private static final String[] TARGET_STRING_LABELS = {"关闭（全部弦）", "6弦", "5弦", "4弦", "3弦", "2弦", "1弦"};
+    private static final NoteMode[] NOTE_MODES = {NoteMode.STRINGS, NoteMode.CHROMATIC, NoteMode.CUSTOM};
+    private static final String[] NOTE_MODE_LABELS = {"吉他六弦", "半音阶（任意音）", "自定义音列"};
+
     private ActivityTuningSettingsBinding binding;
     private TunerSettings currentSettings;
     private boolean initializingTunings = false;
@@ -27,8 +34,9 @@ public class TuningSettingsActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
         applyEdgeInsets(binding.getRoot());
 
-        currentSettings = TunerSettings.load(this);
+        currentSettings = TunerSettings.load(SharedPreferencesStore.of(this));
         setupTunings();
+        setupNoteNaming();
         setupButtons();
     }
 
@@ -45,9 +53,108 @@ public class TuningSettingsActivity extends AppCompatActivity {
         bindSpinner(binding.spinnerString3, adapter, currentSettings.stringNotes[3]);
         bindSpinner(binding.spinnerString2, adapter, currentSettings.stringNotes[4]);
         bindSpinner(binding.spinnerString1, adapter, currentSettings.stringNotes[5]);
+        binding.spinnerTargetString.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                TARGET_STRING_LABELS));
+        binding.spinnerTargetString.setSelection(currentSettings.targetString + 1);
+        binding.spinnerTargetString.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
+                if (initializingTunings) {
+                    return;
+                }
+                applySettings(currentSettings.withTargetString(position - 1));
+            }
+
+            @Override
+            public void onNothingSelected(android.widget.AdapterView<?> parent) {
+            }
+        });
+        binding.switchStrumCheck.setChecked(currentSettings.strumCheck);
+        binding.switchStrumCheck.setOnCheckedChangeListener((button, checked) -> {
+            if (initializingTunings) {
+                return;
+            }
+            applySettings(currentSettings.withStrumCheck(checked));
+        });
         initializingTunings = false;
     }
 
+    private void setupNoteNaming() {
+        initializingTunings = true;
+        binding.spinnerNoteMode.setAdapter(new ArrayAdapter<>(
+                this,
+                android.R.layout.simple_spinner_dropdown_item,
+                NOTE_MODE_LABELS));
+        binding.spinnerNoteMode.setSelection(noteModeIndex(currentSettings.noteMode));
+        updateStringControls(currentSettings);
+        binding.spinnerNoteMode.setOnItemSelectedListener(new android.widget.AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(android.widget.AdapterView<?> parent, View view, int position, long id) {
+                if (initializingTunings) {
+                    return;
+                }
+                applySettings(currentSettings.withNoteMode(NOTE_MODES[position]));
+                updateStringControls(currentSettings);
+            }
+
+            @Override
+            public void onNothingSelected(android.widget.AdapterView<?> parent) {
+            }
+        });
+        initializingTunings = false;
+
+        binding.sliderReferenceHz.setValue((float) Math.rint(currentSettings.referenceHz));
+        binding.valueReferenceHz.setText(referenceText(currentSettings.referenceHz));
+        binding.sliderReferenceHz.addOnChangeListener((slider, value, fromUser) ->
+                binding.valueReferenceHz.setText(referenceText(value)));
+        binding.sliderReferenceHz.addOnSliderTouchListener(new Slider.OnSliderTouchListener() {
+            @Override
+            public void onStartTrackingTouch(@NonNull Slider slider) {
+            }
+
+            @Override
+            public void onStopTrackingTouch(@NonNull Slider slider) {
+                applySettings(currentSettings.withReferenceHz(slider.getValue()));
+            }
+        });
+
+        binding.editCustomNotes.setText(joinNotes(currentSettings.customNotes));
+        binding.editCustomNotes.setOnEditorActionListener((view, actionId, event) -> {
+            if (actionId == EditorInfo.IME_ACTION_DONE) {
+                saveCustomNotesFromUi();
+            }
+            return false;
+        });
+        binding.editCustomNotes.setOnFocusChangeListener((view, hasFocus) -> {
+            if (!hasFocus) {
+                saveCustomNotesFromUi();
+            }
+        });
+    }
+
+    // Single-string mode and strum check only apply while naming by the six strings.
+    private void updateStringControls(@NonNull TunerSettings settings) {
+        boolean strings = settings.noteMode == NoteMode.STRINGS;
+        binding.spinnerTargetString.setEnabled(strings);
+        binding.switchStrumCheck.setEnabled(strings);
+    }
+
+    // Keeps the last valid list when the text does not parse, and says why.
+    private void saveCustomNotesFromUi() {
+        String[] notes = TunerSettings.parseNoteList(binding.editCustomNotes.getText().toString(),
+                currentSettings.referenceHz);
+        if (notes == null) {
+            binding.editCustomNotes.setError("请输入 1–" + TunerSettings.MAX_CUSTOM_NOTES
+                    + " 个 70–1300Hz 内的音名，如 G4 C4 E4 A4（只用 #）");
+            return;
+        }
+        binding.editCustomNotes.setError(null);
+        binding.editCustomNotes.setText(joinNotes(notes));
+        applySettings(currentSettings.withCustomNotes(notes));
+    }
+
     private void bindSpinner(Spinner spinner, ArrayAdapter<String> adapter, String value) {
         spinner.setAdapter(adapter);
         int index = findNoteIndex(value);
@@ -83,7 +190,13 @@ public class TuningSettingsActivity extends AppCompatActivity {
     private void setupButtons() {
         binding.resetButton.setOnClickListener(v -> {
             TunerSettings defaults = TunerSettings.defaults();
-            TunerSettings updated = currentSettings.withStringNotes(defaults.stringNotes);
+            TunerSettings updated = currentSettings
+                    .withStringNotes(defaults.stringNotes)
+                    .withTargetString(defaults.targetString)
+                    .withStrumCheck(defaults.strumCheck)
+                    .withNoteMode(defaults.noteMode)
+                    .withReferenceHz(defaults.referenceHz)
+                    .withCustomNotes(defaults.customNotes);
             applySettings(updated);
             updateTuningValues(updated);
         });
@@ -97,12 +210,37 @@ public class TuningSettingsActivity extends AppCompatActivity {
         binding.spinnerString3.setSelection(findNoteIndex(settings.stringNotes[3]));
         binding.spinnerString2.setSelection(findNoteIndex(settings.stringNotes[4]));
         binding.spinnerString1.setSelection(findNoteIndex(settings.stringNotes[5]));
+        binding.spinnerTargetString.setSelection(settings.targetString + 1);
+        binding.switchStrumCheck.setChecked(settings.strumCheck);
+        binding.spinnerNoteMode.setSelection(noteModeIndex(settings.noteMode));
+        updateStringControls(settings);
+        binding.sliderReferenceHz.setValue((float) Math.rint(settings.referenceHz));
+        binding.valueReferenceHz.setText(referenceText(settings.referenceHz));
+        binding.editCustomNotes.setError(null);
+        binding.editCustomNotes.setText(joinNotes(settings.customNotes));
         initializingTunings = false;
     }
 
     private void applySettings(@NonNull TunerSettings updated) {
         currentSettings = updated;
-        currentSettings.save(this);
+        currentSettings.save(SharedPreferencesStore.of(this));
+    }
+
+    private int noteModeIndex(NoteMode mode) {
+        for (int i = 0; i < NOTE_MODES.length; i++) {
+            if (NOTE_MODES[i] == mode) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static String referenceText(double referenceHz) {
+        return String.format("%.0f Hz", referenceHz);
+    }
+
+    private static String joinNotes(String[] notes) {
+        return String.join(" ", notes);
     }
 
     private int findNoteIndex(String value) {
@@ -0,0 +1,51 @@
+package com.example.tuner;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+
+/** Counts the app's started activities and runs a callback when the last one stops. */
+final class VisibleActivities implements Application.ActivityLifecycleCallbacks {
+
+    private final Runnable onAllStopped;
+    private int started = 0;
+
+    VisibleActivities(Runnable onAllStopped) {
+        this.onAllStopped = onAllStopped;
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        started++;
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+        // Registered while another activity was already started, the count can start one short.
+        if (started > 0 && --started == 0) {
+            onAllStopped.run();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+    }
+}
@@ -13,9 +13,10 @@ dependencyResolutionManagement {
     repositories {
         google()
         mavenCentral()
-        maven(url = "https://jitpack.io")
     }
 }
 
 rootProject.name = "GuitarTuner"
 include(":app")
+include(":tuner-core")
+include(":tuner-bench")
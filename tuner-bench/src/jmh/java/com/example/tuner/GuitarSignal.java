@@ -0,0 +1,19 @@
+package com.example.tuner;
+
+/** Benchmark input: the six open strings plucked in turn, each ringing for a second. */
+final class GuitarSignal {
+
+    static final int SAMPLE_RATE = 48000;
+    private static final double[] OPEN_STRINGS = {82.41, 110.00, 146.83, 196.00, 246.94, 329.63};
+
+    private GuitarSignal() {
+    }
+
+    static short[] render() {
+        SyntheticAudioSource source = new SyntheticAudioSource(OPEN_STRINGS, 1.0, 0);
+        short[] samples = new short[SAMPLE_RATE * OPEN_STRINGS.length];
+        source.open(SAMPLE_RATE);
+        source.read(samples, samples.length);
+        return samples;
+    }
+}
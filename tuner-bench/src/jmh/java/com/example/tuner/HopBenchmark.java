@@ -0,0 +1,30 @@
+package com.example.tuner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One hop through the full pipeline: queue, ring, level and noise gate, pitch detection, median,
+ * smoothing and string mapping. Throughput in hops per second; real time needs sampleRate / hop.
+ * {@link StageBenchmark} times the stages one by one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HopBenchmark {
+
+    @Benchmark
+    public double perHop(PipelineState state) {
+        state.feedHop();
+        return state.lastFrequency;
+    }
+}
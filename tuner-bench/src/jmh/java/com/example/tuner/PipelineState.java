@@ -0,0 +1,81 @@
+package com.example.tuner;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * An offline engine primed with one full window of the guitar signal. Window size and hop mode
+ * cover every {@link TunerSettings#WINDOW_OPTIONS} entry with its standard (window/4) and
+ * low-latency hop; difference mode and precision can be widened with {@code -p}. Priming and
+ * {@link HopBenchmark} go through feedOffline, so the whole hop is the live analyzeHop;
+ * {@link StageBenchmark} calls the single stages it is made of.
+ */
+@State(Scope.Thread)
+public class PipelineState {
+
+    @Param({"2048", "4096", "8192", "16384"})
+    public int windowSize;
+
+    @Param({"false", "true"})
+    public boolean lowLatency;
+
+    @Param({"FFT", "DIRECT"})
+    public String differenceMode;
+
+    @Param({"false"})
+    public boolean floatPipeline;
+
+    TunerEngine engine;
+    short[] signal;
+    short[] hop;
+    int hopSize;
+    int position;
+    double lastFrequency;
+
+    @Setup
+    public void setUp() {
+        TunerSettings settings = TunerSettings.defaults()
+                .withWindowSize(windowSize)
+                .withLowLatency(lowLatency)
+                .withDifferenceMode(DifferenceMode.valueOf(differenceMode))
+                .withFloatPipeline(floatPipeline);
+        engine = new TunerEngine(new TunerEngine.Listener() {
+            @Override
+            public void onPitch(PitchResult result) {
+                lastFrequency = result.frequencyHz;
+            }
+
+            @Override
+            public void onAudioApiUsed(boolean isAAudio) {
+            }
+        });
+        engine.applyConfig(settings);
+        engine.startOffline(GuitarSignal.SAMPLE_RATE);
+        signal = GuitarSignal.render();
+        hopSize = engine.hopSize();
+        hop = new short[hopSize];
+        position = 0;
+        // Half a second in: the ring is full and the first string is still ringing.
+        int primed = GuitarSignal.SAMPLE_RATE / 2;
+        while (position < Math.max(primed, windowSize)) {
+            feedHop();
+        }
+    }
+
+    // One hop through the whole pipeline, looping over the signal.
+    void feedHop() {
+        nextHop();
+        engine.feedOffline(hop, hopSize);
+    }
+
+    short[] nextHop() {
+        if (position + hopSize > signal.length) {
+            position = 0;
+        }
+        System.arraycopy(signal, position, hop, 0, hopSize);
+        position += hopSize;
+        return hop;
+    }
+}
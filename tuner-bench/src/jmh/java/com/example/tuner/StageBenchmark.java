@@ -0,0 +1,54 @@
+package com.example.tuner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Each analysis stage on its own, through the same package-private methods analyzeHop and the
+ * queue drain call, against a ring that already holds a plucked string. Window, lag range and lock
+ * are those the last primed hop left behind.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+    // Queue hand-off plus ring write and running-energy update for one hop.
+    @Benchmark
+    public void appendToRing(PipelineState state) {
+        if (state.engine.queueOffline(state.nextHop(), state.hopSize)) {
+            state.engine.appendFromQueue(state.hopSize);
+        }
+    }
+
+    // Copy of the newest analysis window out of the ring for the detector.
+    @Benchmark
+    public void loadFrame(PipelineState state) {
+        state.engine.loadFrame();
+    }
+
+    @Benchmark
+    public double hopLevelDb(PipelineState state) {
+        return state.engine.hopLevelDb();
+    }
+
+    // Frame copy, difference function, CMNDF and interpolation.
+    @Benchmark
+    public double detectFrequency(PipelineState state) {
+        return state.engine.detectFrequency();
+    }
+
+    @Benchmark
+    public double medianFrequency(PipelineState state) {
+        return state.engine.addFrequencySample(state.lastFrequency);
+    }
+}
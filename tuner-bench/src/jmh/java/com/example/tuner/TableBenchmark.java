@@ -0,0 +1,44 @@
+package com.example.tuner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * What a window size change rebuilds before its first hop: the Hann table and the FFT difference
+ * for the new size. With {@code cached=false} the shared {@link DspTables} are dropped first, as
+ * on the first use in a process.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TableBenchmark {
+
+    @Param({"2048", "4096", "8192", "16384"})
+    public int windowSize;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    @Benchmark
+    public void rebuildForWindow(Blackhole blackhole) {
+        if (!cached) {
+            DspTables.clear();
+        }
+        blackhole.consume(DspTables.hann(windowSize));
+        blackhole.consume(new FftDifference(windowSize, GuitarSignal.SAMPLE_RATE / 70));
+    }
+}
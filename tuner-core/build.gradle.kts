@@ -0,0 +1,31 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+dependencies {
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Synthetic accuracy and time-to-stable report (the test task gates the same matrix through
+// AccuracyTest); filters and gates via -PaccuracyArgs="--window 8192 --max-p95-cents 20".
+tasks.register<JavaExec>("accuracy") {
+    group = "verification"
+    description = "Prints the AccuracyHarness report over the synthetic pluck scenarios."
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set("com.example.tuner.AccuracyHarness")
+    (findProperty("accuracyArgs") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
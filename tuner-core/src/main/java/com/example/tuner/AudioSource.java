@@ -0,0 +1,38 @@
+package com.example.tuner;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Where {@link TunerEngine} gets its audio: the device microphone through Oboe on Android, or a
+ * file or generated signal on a desktop JVM. A source delivers mono samples from its own thread
+ * and must not block in the sink, which only enqueues.
+ */
+interface AudioSource {
+
+    /**
+     * Starts delivering roughly {@code framesPerRead} frames per call to {@code sink}. Buffers
+     * hold floats only when {@code floatSamples} is set; {@code short[]} is always accepted.
+     * Returns false if the source could not start.
+     */
+    boolean start(int requestedSampleRate, int framesPerRead, boolean floatSamples, Sink sink);
+
+    /** Stops delivery; no sink call is made once this returns. */
+    void stop();
+
+    interface Sink {
+        void onStreamConfig(int actualSampleRate);
+
+        void onAudioApiUsed(boolean isAAudio);
+
+        void onPcm(short[] samples, int count);
+
+        // Buffers are read from position 0; the source may reuse them once the call returns.
+        void onPcm(ShortBuffer samples, int count);
+
+        void onPcm(FloatBuffer samples, int count);
+
+        // Periodic capture health; the instance is reused, so copy what is needed before returning.
+        void onCaptureStats(CaptureStats stats);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.tuner;
+
+/**
+ * Capture-side health as last reported by the audio source, about once a second. Counters are
+ * totals since the stream started; interval figures cover the last report period only. Fields
+ * are updated one at a time, so a reader on another thread may see a mix of two consecutive
+ * reports, which is fine for monitoring.
+ */
+final class CaptureStats {
+
+    private static final CaptureStats NONE = new CaptureStats();
+
+    // Totals since start.
+    volatile long reads;
+    volatile long frames;
+    volatile long shortReads;
+    volatile long timeouts;
+    volatile long errors;
+    // Oboe's running xrun count for the stream, or -1 where the backend cannot report it.
+    volatile long xRuns = -1;
+    // Time between reads that returned audio, over the last period, against framesPerRead worth.
+    volatile long expectedIntervalNanos;
+    volatile long meanIntervalNanos;
+    volatile long jitterNanos;
+    volatile long maxIntervalNanos;
+    volatile int framesPerRead;
+    volatile int framesPerBurst;
+    volatile int bufferSizeFrames;
+    volatile int bufferCapacityFrames;
+    // Callback capture only: frames the callback could not queue for the read thread.
+    volatile long droppedFrames;
+    // True when the source is driven by the stream's data callback rather than blocking reads.
+    volatile boolean callbackMode;
+    volatile long reports;
+
+    void copyFrom(CaptureStats other) {
+        reads = other.reads;
+        frames = other.frames;
+        shortReads = other.shortReads;
+        timeouts = other.timeouts;
+        errors = other.errors;
+        xRuns = other.xRuns;
+        expectedIntervalNanos = other.expectedIntervalNanos;
+        meanIntervalNanos = other.meanIntervalNanos;
+        jitterNanos = other.jitterNanos;
+        maxIntervalNanos = other.maxIntervalNanos;
+        framesPerRead = other.framesPerRead;
+        framesPerBurst = other.framesPerBurst;
+        bufferSizeFrames = other.bufferSizeFrames;
+        bufferCapacityFrames = other.bufferCapacityFrames;
+        droppedFrames = other.droppedFrames;
+        callbackMode = other.callbackMode;
+        reports = other.reports;
+    }
+
+    void clear() {
+        copyFrom(NONE);
+    }
+}
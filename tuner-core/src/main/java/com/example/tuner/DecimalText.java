@@ -0,0 +1,53 @@
+package com.example.tuner;
+
+// Formats fixed two-decimal readouts and counters into a reusable char[] so per-frame UI updates allocate nothing.
+final class DecimalText {
+
+    private DecimalText() {
+    }
+
+    /**
+     * Writes {@code value} rounded to two decimals, optionally with a leading sign, followed by
+     * {@code suffix}. Returns the number of chars written; {@code out} must be large enough.
+     */
+    static int format(char[] out, double value, boolean signed, String suffix) {
+        long hundredths = Math.round(Math.abs(value) * 100.0);
+        int pos = 0;
+        if (value < 0 && hundredths != 0) {
+            out[pos++] = '-';
+        } else if (signed) {
+            out[pos++] = '+';
+        }
+        int fraction = (int) (hundredths % 100);
+        pos = appendLong(out, hundredths / 100, pos);
+        out[pos++] = '.';
+        out[pos++] = (char) ('0' + fraction / 10);
+        out[pos++] = (char) ('0' + fraction % 10);
+        for (int i = 0; i < suffix.length(); i++) {
+            out[pos++] = suffix.charAt(i);
+        }
+        return pos;
+    }
+
+    /**
+     * Writes the non-negative {@code value} in decimal at {@code pos} and returns the position after
+     * its last digit; {@code out} must be large enough.
+     */
+    static int appendLong(char[] out, long value, int pos) {
+        int start = pos;
+        do {
+            out[pos++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        reverse(out, start, pos - 1);
+        return pos;
+    }
+
+    private static void reverse(char[] chars, int from, int to) {
+        while (from < to) {
+            char tmp = chars[from];
+            chars[from++] = chars[to];
+            chars[to--] = tmp;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.tuner;
+
+// How the YIN squared-difference function is evaluated for each lag.
+enum DifferenceMode {
+    DIRECT,
+    FFT
+}
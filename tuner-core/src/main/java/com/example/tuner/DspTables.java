@@ -0,0 +1,110 @@
+package com.example.tuner;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of immutable DSP tables (Hann windows, FFT twiddles), shared by every engine,
+ * analyzer and benchmark in the process so a reconfigure or a second engine does not recompute
+ * them. Entries are keyed by kind and size and kept in least-recently-used order up to
+ * {@link #MAX_BYTES}; an evicted table stays valid for whoever holds it and is only rebuilt for
+ * the next caller. The returned arrays are shared: never write to them.
+ */
+final class DspTables {
+
+    static final long MAX_BYTES = 8L << 20;
+
+    private static final int HANN = 0;
+    private static final int HANN_FLOAT = 1;
+    private static final int FFT = 2;
+    private static final int FFT_FLOAT = 3;
+
+    // Access-ordered, so iteration starts at the least recently used entry.
+    private static final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long bytes;
+
+    private DspTables() {
+    }
+
+    static double[] hann(int size) {
+        return (double[]) get(HANN, size);
+    }
+
+    static float[] hannFloat(int size) {
+        return (float[]) get(HANN_FLOAT, size);
+    }
+
+    static RealFft.Tables fft(int size, boolean singlePrecision) {
+        return (RealFft.Tables) get(singlePrecision ? FFT_FLOAT : FFT, size);
+    }
+
+    // Drops every entry; for benchmarks that measure a cold start.
+    static synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    // Builds under the lock: a table is computed once even when several threads ask at the same time.
+    private static synchronized Object get(int kind, int size) {
+        Long key = ((long) kind << 32) | size;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            return entry.table;
+        }
+        entry = build(kind, size);
+        entries.put(key, entry);
+        bytes += entry.bytes;
+        evict(key);
+        return entry.table;
+    }
+
+    // Oldest first; the entry just added always stays, even if it alone is over the budget.
+    private static void evict(Long newest) {
+        Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+        while (bytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<Long, Entry> eldest = it.next();
+            if (eldest.getKey().equals(newest)) {
+                break;
+            }
+            bytes -= eldest.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    private static Entry build(int kind, int size) {
+        switch (kind) {
+            case HANN: {
+                double[] table = new double[size];
+                for (int i = 0; i < size; i++) {
+                    table[i] = 0.5 * (1 - Math.cos(2 * Math.PI * i / (size - 1)));
+                }
+                return new Entry(table, 8L * size);
+            }
+            case HANN_FLOAT: {
+                float[] table = new float[size];
+                for (int i = 0; i < size; i++) {
+                    table[i] = (float) (0.5 * (1 - Math.cos(2 * Math.PI * i / (size - 1))));
+                }
+                return new Entry(table, 4L * size);
+            }
+            case FFT:
+            case FFT_FLOAT: {
+                RealFft.Tables table = new RealFft.Tables(size, kind == FFT_FLOAT);
+                return new Entry(table, table.bytes());
+            }
+            default:
+                throw new IllegalArgumentException("Unknown table kind: " + kind);
+        }
+    }
+
+    private static final class Entry {
+        final Object table;
+        final long bytes;
+
+        Entry(Object table, long bytes) {
+            this.table = table;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.tuner;
+
+import java.util.Arrays;
+
+/**
+ * YIN squared-difference function computed via autocorrelation:
+ * d(τ) = Σx[i]² (i < W-τ) + Σx[i]² (τ <= i < W) - 2·r(τ), with the power terms taken from
+ * prefix sums and r(τ) from a zero-padded real FFT.
+ */
+final class FftDifference {
+
+    private final int windowSize;
+    private final int maxLag;
+    private final boolean singlePrecision;
+    private final RealFft fft;
+    private final double[] padded;
+    private final double[] spectrumRe;
+    private final double[] spectrumIm;
+    private final float[] paddedF;
+    private final float[] spectrumReF;
+    private final float[] spectrumImF;
+    private final double[] energyPrefix;
+
+    FftDifference(int windowSize, int maxLag) {
+        this(windowSize, maxLag, false);
+    }
+
+    FftDifference(int windowSize, int maxLag, boolean singlePrecision) {
+        this.windowSize = windowSize;
+        this.maxLag = maxLag;
+        this.singlePrecision = singlePrecision;
+        fft = new RealFft(RealFft.nextPowerOfTwo(windowSize + maxLag + 1), singlePrecision);
+        int bins = fft.size / 2 + 1;
+        if (singlePrecision) {
+            paddedF = new float[fft.size];
+            spectrumReF = new float[bins];
+            spectrumImF = new float[bins];
+            padded = null;
+            spectrumRe = null;
+            spectrumIm = null;
+        } else {
+            padded = new double[fft.size];
+            spectrumRe = new double[bins];
+            spectrumIm = new double[bins];
+            paddedF = null;
+            spectrumReF = null;
+            spectrumImF = null;
+        }
+        energyPrefix = new double[windowSize + 1];
+    }
+
+    boolean fits(int size, int lag, boolean single) {
+        return size == windowSize && lag == maxLag && single == singlePrecision;
+    }
+
+    void compute(double[] samples, int size, int minLag, int maxLag, double[] out) {
+        int n = fft.size;
+        System.arraycopy(samples, 0, padded, 0, size);
+        Arrays.fill(padded, size, n, 0);
+
+        double energy = 0;
+        energyPrefix[0] = 0;
+        for (int i = 0; i < size; i++) {
+            energy += samples[i] * samples[i];
+            energyPrefix[i + 1] = energy;
+        }
+
+        // Power spectrum is real and even, so a second forward transform yields N·r(τ).
+        fft.forward(padded, spectrumRe, spectrumIm);
+        int half = n / 2;
+        for (int k = 0; k <= half; k++) {
+            padded[k] = spectrumRe[k] * spectrumRe[k] + spectrumIm[k] * spectrumIm[k];
+        }
+        for (int k = half + 1; k < n; k++) {
+            padded[k] = padded[n - k];
+        }
+        fft.forward(padded, spectrumRe, spectrumIm);
+
+        double scale = 1.0 / n;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double head = energyPrefix[size - lag];
+            double tail = energy - energyPrefix[lag];
+            double value = head + tail - 2 * spectrumRe[lag] * scale;
+            out[lag] = value > 0 ? value : 0;
+        }
+    }
+
+    /** Single-precision variant; the per-lag output stays double since it is only ~maxLag long. */
+    void compute(float[] samples, int size, int minLag, int maxLag, double[] out) {
+        int n = fft.size;
+        System.arraycopy(samples, 0, paddedF, 0, size);
+        Arrays.fill(paddedF, size, n, 0f);
+
+        double energy = 0;
+        energyPrefix[0] = 0;
+        for (int i = 0; i < size; i++) {
+            energy += samples[i] * samples[i];
+            energyPrefix[i + 1] = energy;
+        }
+
+        fft.forward(paddedF, spectrumReF, spectrumImF);
+        int half = n / 2;
+        for (int k = 0; k <= half; k++) {
+            paddedF[k] = spectrumReF[k] * spectrumReF[k] + spectrumImF[k] * spectrumImF[k];
+        }
+        for (int k = half + 1; k < n; k++) {
+            paddedF[k] = paddedF[n - k];
+        }
+        fft.forward(paddedF, spectrumReF, spectrumImF);
+
+        double scale = 1.0 / n;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double head = energyPrefix[size - lag];
+            double tail = energy - energyPrefix[lag];
+            double value = head + tail - 2 * spectrumReF[lag] * scale;
+            out[lag] = value > 0 ? value : 0;
+        }
+    }
+}
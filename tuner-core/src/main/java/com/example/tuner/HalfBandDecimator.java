@@ -0,0 +1,70 @@
+package com.example.tuner;
+
+/**
+ * Anti-aliased decimation by two with a windowed-sinc half-band FIR. Every other tap of a
+ * half-band filter is zero, so only the centre and the odd taps are stored and applied.
+ */
+final class HalfBandDecimator {
+
+    static final int TAPS = 31;
+    private static final int HALF = TAPS / 2;
+
+    // oddTaps[k] is the coefficient at offset ±(2k + 1) from the centre (symmetric filter). The
+    // taps never change, so every decimator in the process shares one copy.
+    private static final double[] oddTaps = new double[(HALF + 1) / 2];
+    private static final double centre;
+
+    static {
+        double sum = 0.5;
+        for (int k = 0; k < oddTaps.length; k++) {
+            int n = 2 * k + 1;
+            double sinc = Math.sin(Math.PI * n / 2.0) / (Math.PI * n);
+            double blackman = 0.42 + 0.5 * Math.cos(Math.PI * n / (HALF + 1))
+                    + 0.08 * Math.cos(2 * Math.PI * n / (HALF + 1));
+            oddTaps[k] = sinc * blackman;
+            sum += 2 * oddTaps[k];
+        }
+        // Normalise to unity DC gain.
+        for (int k = 0; k < oddTaps.length; k++) {
+            oddTaps[k] /= sum;
+        }
+        centre = 0.5 / sum;
+    }
+
+    /** Filters {@code input[0..length)} and keeps every second sample; returns the output length. */
+    int decimate(double[] input, int length, double[] output) {
+        int outLength = length / 2;
+        for (int m = 0; m < outLength; m++) {
+            int c = 2 * m;
+            double acc = centre * input[c];
+            for (int k = 0; k < oddTaps.length; k++) {
+                int offset = 2 * k + 1;
+                int before = c - offset;
+                int after = c + offset;
+                double a = before >= 0 ? input[before] : 0;
+                double b = after < length ? input[after] : 0;
+                acc += oddTaps[k] * (a + b);
+            }
+            output[m] = acc;
+        }
+        return outLength;
+    }
+
+    int decimate(float[] input, int length, double[] output) {
+        int outLength = length / 2;
+        for (int m = 0; m < outLength; m++) {
+            int c = 2 * m;
+            double acc = centre * input[c];
+            for (int k = 0; k < oddTaps.length; k++) {
+                int offset = 2 * k + 1;
+                int before = c - offset;
+                int after = c + offset;
+                double a = before >= 0 ? input[before] : 0;
+                double b = after < length ? input[after] : 0;
+                acc += oddTaps[k] * (a + b);
+            }
+            output[m] = acc;
+        }
+        return outLength;
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.tuner;
+
+/**
+ * Constant-velocity Kalman filter on the median of the recent detections, in cents so that one
+ * noise level fits every string. The acceleration noise is matched to an alpha-beta filter whose
+ * alpha is the smoothing coefficient, damped on the high strings as in {@link SmoothingTracker},
+ * and a note starts from the steady-state covariance so the first hops are weighted like the rest
+ * of the note. A reading is stable after {@link #STABLE_ACCEPTED_HITS} accepted hops in a row within
+ * {@link PitchTracker#STABLE_CENTS}: every hop after the first has passed the gate, so it needs
+ * one hop fewer than smoothing, which takes every median as it comes.
+ * <p>
+ * A detection more than {@link #GATE_SIGMAS} standard deviations off the prediction is rejected
+ * and the prediction shown instead, which drops single octave slips. Two rejected detections in a
+ * row that agree with each other mean a new note: the filter restarts on the latest one, where the
+ * median and smoothing take several hops to let go of the old note. Like smoothing, a drop while
+ * the level is near the threshold is held rather than taken as a new note, since a decaying string
+ * often reads an octave low.
+ */
+final class KalmanTracker implements PitchTracker {
+
+    // Spread of single YIN detections over a whole pluck, including the drift of large windows on
+    // a decaying note; sets the gate, the gains only depend on its ratio to the process noise.
+    private static final double MEASUREMENT_CENTS = 60.0;
+    private static final double GATE_SIGMAS = 4.0;
+    private static final int STABLE_ACCEPTED_HITS = STABLE_HITS - 1;
+    // Two rejected detections closer than this are taken as the same new note.
+    private static final double RESTART_CENTS = 50.0;
+    // Smallest prior spread of the velocity of a new note, in cents per hop, so a bend that starts
+    // with the note is still followed.
+    private static final double INITIAL_VELOCITY_CENTS = 0.2;
+    // Below the damped strings the velocity follows the slow drift of the detector on a held note,
+    // so they get this fraction of the matched acceleration noise.
+    private static final double LOW_STRING_PROCESS_SCALE = 0.1;
+    // Iterations of the covariance recursion that settle it for any alpha the settings allow.
+    private static final int STEADY_STATE_ITERATIONS = 2000;
+    // Rejected drops within this many dB of the threshold are held, as in SmoothingTracker.
+    private static final double WEAK_DROP_DB = 6.0;
+    private static final double MEASUREMENT_VARIANCE = MEASUREMENT_CENTS * MEASUREMENT_CENTS;
+    private static final double DAMPING_CENTS = 1200.0 * Math.log(SmoothingTracker.HIGH_FREQ_DAMPING_HZ)
+            / Math.log(2.0);
+
+    // Per band, low strings then high: acceleration variance per hop squared and the steady-state
+    // covariance a note starts from.
+    private final double[] processVariances = new double[2];
+    private final double[] steadyP00 = new double[2];
+    private final double[] steadyP01 = new double[2];
+    private final double[] steadyP11 = new double[2];
+    private double processVariance;
+
+    // State: pitch in cents above 1 Hz and its drift per hop, with covariance p00 p01 / p01 p11.
+    private boolean initialized = false;
+    private double position;
+    private double velocity;
+    private double p00;
+    private double p01;
+    private double p11;
+    // Whether the last update used its detection rather than showing the prediction.
+    private boolean accepted = false;
+    private int stableHits = 0;
+    private int rejected = 0;
+    private double lastRejected;
+
+    KalmanTracker() {
+        configure(TunerSettings.DEFAULT_SMOOTHING_ALPHA);
+    }
+
+    @Override
+    public double update(double raw, double median, double amplitudeDb, double thresholdDb) {
+        if (median <= 0) {
+            reset();
+            return 0;
+        }
+        double measured = 1200.0 * Math.log(median) / Math.log(2.0);
+        if (!initialized) {
+            restart(measured);
+            return median;
+        }
+        predict();
+        double innovation = measured - position;
+        double innovationVariance = p00 + MEASUREMENT_VARIANCE;
+        if (innovation * innovation > GATE_SIGMAS * GATE_SIGMAS * innovationVariance) {
+            accepted = false;
+            if (measured < position && amplitudeDb < thresholdDb + WEAK_DROP_DB) {
+                return toFrequency(position);
+            }
+            if (rejected > 0 && Math.abs(measured - lastRejected) < RESTART_CENTS) {
+                restart(measured);
+                return median;
+            }
+            rejected++;
+            lastRejected = measured;
+            return toFrequency(position);
+        }
+        rejected = 0;
+        double gainPosition = p00 / innovationVariance;
+        double gainVelocity = p01 / innovationVariance;
+        position += gainPosition * innovation;
+        velocity += gainVelocity * innovation;
+        double n00 = (1 - gainPosition) * p00;
+        double n01 = (1 - gainPosition) * p01;
+        double n11 = p11 - gainVelocity * p01;
+        p00 = n00;
+        p01 = n01;
+        p11 = n11;
+        accepted = true;
+        return toFrequency(position);
+    }
+
+    @Override
+    public boolean stable(double cents) {
+        // A hop that showed the prediction breaks the run.
+        if (accepted && Math.abs(cents) < STABLE_CENTS) {
+            stableHits++;
+        } else {
+            stableHits = 0;
+        }
+        return stableHits >= STABLE_ACCEPTED_HITS;
+    }
+
+    /**
+     * Picks the acceleration noise whose steady state is the alpha-beta filter with alpha equal to
+     * the smoothing coefficient: beta from the Kalata relation, then q = (beta² / (1 - alpha)) · r.
+     * The high strings use the damped alpha of smoothing; the low strings a fraction of their q.
+     * The note being tracked keeps its covariance until the next restart.
+     */
+    @Override
+    public void configure(double smoothingAlpha) {
+        for (int band = 0; band < 2; band++) {
+            double alpha = smoothingAlpha * (band == 0 ? 1 : SmoothingTracker.HIGH_FREQ_STEP_FACTOR);
+            alpha = Math.max(0.01, Math.min(0.99, alpha));
+            double beta = 2 * (2 - alpha) - 4 * Math.sqrt(1 - alpha);
+            double q = beta * beta / (1 - alpha) * MEASUREMENT_VARIANCE;
+            processVariances[band] = band == 0 ? q * LOW_STRING_PROCESS_SCALE : q;
+            settle(band);
+        }
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        accepted = false;
+        stableHits = 0;
+        rejected = 0;
+    }
+
+    private void restart(double measured) {
+        int band = measured >= DAMPING_CENTS ? 1 : 0;
+        initialized = true;
+        position = measured;
+        velocity = 0;
+        processVariance = processVariances[band];
+        p00 = steadyP00[band];
+        p01 = steadyP01[band];
+        p11 = Math.max(steadyP11[band], INITIAL_VELOCITY_CENTS * INITIAL_VELOCITY_CENTS);
+        accepted = true;
+        stableHits = 0;
+        rejected = 0;
+    }
+
+    // Runs the predict/update covariance recursion of one band to its steady state.
+    private void settle(int band) {
+        double q = processVariances[band];
+        double a00 = MEASUREMENT_VARIANCE;
+        double a01 = 0;
+        double a11 = INITIAL_VELOCITY_CENTS * INITIAL_VELOCITY_CENTS;
+        for (int i = 0; i < STEADY_STATE_ITERATIONS; i++) {
+            double n00 = a00 + 2 * a01 + a11 + q / 4;
+            double n01 = a01 + a11 + q / 2;
+            double n11 = a11 + q;
+            double innovationVariance = n00 + MEASUREMENT_VARIANCE;
+            double gainPosition = n00 / innovationVariance;
+            double gainVelocity = n01 / innovationVariance;
+            a00 = (1 - gainPosition) * n00;
+            a01 = (1 - gainPosition) * n01;
+            a11 = n11 - gainVelocity * n01;
+        }
+        steadyP00[band] = a00;
+        steadyP01[band] = a01;
+        steadyP11[band] = a11;
+    }
+
+    // x <- F x, P <- F P F' + Q for F = [1 1; 0 1] and white acceleration noise.
+    private void predict() {
+        position += velocity;
+        double q = processVariance;
+        double n00 = p00 + 2 * p01 + p11 + q / 4;
+        double n01 = p01 + p11 + q / 2;
+        double n11 = p11 + q;
+        p00 = n00;
+        p01 = n01;
+        p11 = n11;
+    }
+
+    private static double toFrequency(double cents) {
+        return Math.pow(2.0, cents / 1200.0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tuner;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fixed pool that splits a range of YIN lags into contiguous chunks, one per thread, with the
+ * calling thread taking the first. Workers park between calls and the job lives in plain fields
+ * published by a volatile generation counter, so a call allocates nothing.
+ */
+final class LagWorkerPool {
+
+    final int parallelism;
+    private final Thread[] workers;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile int generation = 0;
+    private volatile boolean shutdown = false;
+    private volatile Thread caller;
+    // Current job; written by the caller before the generation bump that publishes it.
+    private double[] doubleSamples;
+    private float[] floatSamples;
+    private int size;
+    private int from;
+    private int to;
+    private double[] out;
+
+    LagWorkerPool(int parallelism) {
+        this.parallelism = parallelism;
+        workers = new Thread[parallelism - 1];
+        for (int i = 0; i < workers.length; i++) {
+            int chunk = i + 1;
+            Thread worker = new Thread(() -> workerLoop(chunk), "TunerLag-" + chunk);
+            worker.setDaemon(true);
+            workers[i] = worker;
+            worker.start();
+        }
+    }
+
+    /** Fills {@code out[from..to]} with d(τ) of {@code samples[0..size)}; returns when all chunks are done. */
+    void compute(double[] samples, int size, int from, int to, double[] out) {
+        doubleSamples = samples;
+        floatSamples = null;
+        run(size, from, to, out);
+    }
+
+    void compute(float[] samples, int size, int from, int to, double[] out) {
+        floatSamples = samples;
+        doubleSamples = null;
+        run(size, from, to, out);
+    }
+
+    void shutdown() {
+        shutdown = true;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private void run(int size, int from, int to, double[] out) {
+        this.size = size;
+        this.from = from;
+        this.to = to;
+        this.out = out;
+        caller = Thread.currentThread();
+        pending.set(workers.length);
+        generation++;
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        computeChunk(0);
+        while (pending.get() > 0) {
+            LockSupport.park(this);
+        }
+    }
+
+    private void workerLoop(int chunk) {
+        int seen = 0;
+        while (true) {
+            while (generation == seen && !shutdown) {
+                LockSupport.park(this);
+            }
+            if (shutdown) {
+                return;
+            }
+            seen = generation;
+            computeChunk(chunk);
+            if (pending.decrementAndGet() == 0) {
+                LockSupport.unpark(caller);
+            }
+        }
+    }
+
+    private void computeChunk(int chunk) {
+        int total = to - from + 1;
+        int start = from + (int) ((long) total * chunk / parallelism);
+        int end = from + (int) ((long) total * (chunk + 1) / parallelism);
+        for (int lag = start; lag < end; lag++) {
+            out[lag] = floatSamples != null
+                    ? MultiRateDifference.directDifference(floatSamples, size, lag)
+                    : MultiRateDifference.directDifference(doubleSamples, size, lag);
+        }
+    }
+}
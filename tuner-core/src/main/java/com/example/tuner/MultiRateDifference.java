@@ -0,0 +1,113 @@
+package com.example.tuner;
+
+/**
+ * Multi-rate YIN difference function. Short lags (high notes) are evaluated exactly at the
+ * capture rate; the long-lag band is evaluated on a half-band decimated copy of the window and
+ * interpolated back onto the full-rate lag axis, so low strings cost 1/factor² of the work.
+ * The caller re-evaluates the chosen lag at full rate with {@link #refineRadius()}.
+ */
+final class MultiRateDifference {
+
+    // Lags up to SPLIT_RATIO × minLag stay at full rate, where one lag step is the most cents.
+    private static final int SPLIT_RATIO = 2;
+
+    final int factor;
+    private final int windowSize;
+    private final int maxLag;
+    private final int splitLag;
+    private final int coarseMinLag;
+    private final int coarseMaxLag;
+    private final HalfBandDecimator decimator = new HalfBandDecimator();
+    private final double[] stageA;
+    private final double[] stageB;
+    private final double[] coarseDiff;
+    private final FftDifference coarseFft;
+
+    MultiRateDifference(int windowSize, int minLag, int maxLag, int factor, boolean useFft) {
+        if (factor != 2 && factor != 4) {
+            throw new IllegalArgumentException("Decimation factor must be 2 or 4: " + factor);
+        }
+        this.factor = factor;
+        this.windowSize = windowSize;
+        this.maxLag = maxLag;
+        splitLag = Math.min(maxLag, minLag * SPLIT_RATIO);
+        coarseMinLag = Math.max(1, splitLag / factor);
+        coarseMaxLag = maxLag / factor + 1;
+        stageA = new double[windowSize / 2];
+        stageB = factor == 4 ? new double[windowSize / 4] : null;
+        coarseDiff = new double[coarseMaxLag + 1];
+        coarseFft = useFft ? new FftDifference(windowSize / factor, coarseMaxLag) : null;
+    }
+
+    boolean fits(int size, int lag, int decimation, boolean useFft) {
+        return size == windowSize && lag == maxLag && decimation == factor
+                && useFft == (coarseFft != null);
+    }
+
+    /** Lags above the split come from the decimated band and should be re-checked at full rate. */
+    int splitLag() {
+        return splitLag;
+    }
+
+    int refineRadius() {
+        return factor;
+    }
+
+    void compute(double[] samples, int size, int minLag, int maxLag, double[] out) {
+        for (int lag = minLag; lag <= splitLag; lag++) {
+            out[lag] = directDifference(samples, size, lag);
+        }
+        int length = decimator.decimate(samples, size, stageA);
+        computeCoarse(length, maxLag, out);
+    }
+
+    void compute(float[] samples, int size, int minLag, int maxLag, double[] out) {
+        for (int lag = minLag; lag <= splitLag; lag++) {
+            out[lag] = directDifference(samples, size, lag);
+        }
+        int length = decimator.decimate(samples, size, stageA);
+        computeCoarse(length, maxLag, out);
+    }
+
+    private void computeCoarse(int length, int maxLag, double[] out) {
+        double[] decimated = stageA;
+        if (stageB != null) {
+            length = decimator.decimate(stageA, length, stageB);
+            decimated = stageB;
+        }
+        if (coarseFft != null) {
+            coarseFft.compute(decimated, length, coarseMinLag, coarseMaxLag, coarseDiff);
+        } else {
+            for (int lag = coarseMinLag; lag <= coarseMaxLag; lag++) {
+                coarseDiff[lag] = directDifference(decimated, length, lag);
+            }
+        }
+        // Each decimated sample stands for `factor` full-rate ones, so d scales by the same factor.
+        for (int lag = splitLag + 1; lag <= maxLag; lag++) {
+            int index = lag / factor;
+            double frac = (lag - index * factor) / (double) factor;
+            double value = coarseDiff[index] + (coarseDiff[index + 1] - coarseDiff[index]) * frac;
+            out[lag] = value * factor;
+        }
+    }
+
+    static double directDifference(double[] samples, int size, int lag) {
+        double sum = 0;
+        int limit = size - lag;
+        for (int i = 0; i < limit; i++) {
+            double delta = samples[i] - samples[i + lag];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    static double directDifference(float[] samples, int size, int lag) {
+        double sum = 0;
+        int limit = size - lag;
+        for (int i = 0; i < limit; i++) {
+            float delta = samples[i] - samples[i + lag];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tuner;
+
+/**
+ * Names a detected frequency and gives its offset in cents with a single logarithm. The chromatic
+ * mapper rounds to the nearest equal-tempered note against the A4 reference and reads the name from
+ * a table; a tuning mapper (the six strings, or any list of notes) bisects its pitches, sorted once
+ * in cents, and takes the nearer neighbour. Results land in {@link #index}, {@link #label} and
+ * {@link #cents}, so the per-hop call allocates nothing. Immutable apart from those.
+ */
+final class NoteMapper {
+
+    private static final String[] NAMES = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+    private static final int MIDI_NOTES = 128;
+    private static final int MIDI_A4 = 69;
+    private static final String[] MIDI_LABELS = buildMidiLabels();
+    private static final double CENTS_PER_LN = 1200.0 / Math.log(2.0);
+
+    // Cents of MIDI note 0 above 1 Hz; chromatic mapping only.
+    private final double originCents;
+    // Tuning mapping only, null when chromatic: pitches in cents above 1 Hz, ascending, with the
+    // label and caller's index of each.
+    private final double[] sortedCents;
+    private final String[] sortedLabels;
+    private final int[] sortedIndex;
+
+    // Last mapping: MIDI note or index into the tuning as passed in, its name, and the offset.
+    int index;
+    String label = "";
+    double cents;
+
+    private NoteMapper(double originCents, double[] sortedCents, String[] sortedLabels, int[] sortedIndex) {
+        this.originCents = originCents;
+        this.sortedCents = sortedCents;
+        this.sortedLabels = sortedLabels;
+        this.sortedIndex = sortedIndex;
+    }
+
+    static NoteMapper chromatic(double referenceHz) {
+        return new NoteMapper(CENTS_PER_LN * Math.log(referenceHz) - 100.0 * MIDI_A4, null, null, null);
+    }
+
+    static NoteMapper tuning(String[] labels, double[] frequencies) {
+        int count = frequencies.length;
+        double[] sortedCents = new double[count];
+        String[] sortedLabels = new String[count];
+        int[] sortedIndex = new int[count];
+        // Insertion sort: tunings are short and this runs once per configuration.
+        for (int i = 0; i < count; i++) {
+            double value = CENTS_PER_LN * Math.log(frequencies[i]);
+            int j = i;
+            while (j > 0 && sortedCents[j - 1] > value) {
+                sortedCents[j] = sortedCents[j - 1];
+                sortedLabels[j] = sortedLabels[j - 1];
+                sortedIndex[j] = sortedIndex[j - 1];
+                j--;
+            }
+            sortedCents[j] = value;
+            sortedLabels[j] = labels[i];
+            sortedIndex[j] = i;
+        }
+        return new NoteMapper(0, sortedCents, sortedLabels, sortedIndex);
+    }
+
+    // Fills index, label and cents for a positive frequency and returns the index.
+    int map(double frequency) {
+        double pitch = CENTS_PER_LN * Math.log(frequency);
+        if (sortedCents == null) {
+            int note = (int) Math.floor((pitch - originCents) / 100.0 + 0.5);
+            note = Math.max(0, Math.min(MIDI_NOTES - 1, note));
+            index = note;
+            label = MIDI_LABELS[note];
+            cents = pitch - originCents - 100.0 * note;
+            return index;
+        }
+        int nearest = nearest(pitch);
+        index = sortedIndex[nearest];
+        label = sortedLabels[nearest];
+        cents = pitch - sortedCents[nearest];
+        return index;
+    }
+
+    // Lower bound by bisection, then whichever neighbour is closer in cents; ties go low.
+    private int nearest(double pitch) {
+        int low = 0;
+        int high = sortedCents.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedCents[mid] < pitch) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        if (low == sortedCents.length) {
+            return low - 1;
+        }
+        if (low > 0 && pitch - sortedCents[low - 1] <= sortedCents[low] - pitch) {
+            return low - 1;
+        }
+        return low;
+    }
+
+    private static String[] buildMidiLabels() {
+        String[] labels = new String[MIDI_NOTES];
+        for (int note = 0; note < MIDI_NOTES; note++) {
+            labels[note] = NAMES[note % 12] + (note / 12 - 1);
+        }
+        return labels;
+    }
+}
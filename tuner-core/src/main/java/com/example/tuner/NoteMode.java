@@ -0,0 +1,11 @@
+package com.example.tuner;
+
+// What a detected pitch is named after.
+enum NoteMode {
+    // The nearest of the six configured strings.
+    STRINGS,
+    // The nearest equal-tempered note, against the A4 reference.
+    CHROMATIC,
+    // The nearest note of the user's own list, of any length.
+    CUSTOM
+}
@@ -0,0 +1,245 @@
+package com.example.tuner;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch analysis of WAV recordings through the same ring, noise gate, YIN, median and
+ * smoothing stages as live capture. Each file is memory-mapped and fed hop by hop into its own
+ * {@link TunerEngine} on a worker thread, as fast as the analysis runs; a directory is spread
+ * over one worker per core. Every analysed hop becomes one line of {@code <name>.pitch.tsv}:
+ * end time in ms, Hz, cents, string, dB and S(table)/D(etecting)/-(no signal), followed by
+ * per-string cents in strum check mode. With {@code --timings} the summary adds per-stage
+ * p50/p99/max times and the last hops go to {@code <name>.trace.json} for chrome://tracing.
+ *
+ * <p>Runs on any JVM from the tuner-core jar, e.g.
+ * {@code java -cp tuner-core/build/libs/tuner-core.jar com.example.tuner.OfflineAnalyzer
+ * --out traces recordings}, or on a device without the UI through
+ * {@code adb shell CLASSPATH=$(pm path com.example.tuner | cut -d: -f2) app_process /
+ * com.example.tuner.OfflineAnalyzer --out /sdcard/traces /sdcard/recordings}
+ */
+public final class OfflineAnalyzer {
+
+    private static final String USAGE = "Usage: OfflineAnalyzer [--window N] [--low-latency] [--strum] "
+            + "[--chromatic] [--a4 HZ] [--float] [--timings] [--out DIR] <file.wav|dir>...";
+
+    private final TunerSettings settings;
+    private final File outDir;
+    private final boolean writeTimings;
+
+    OfflineAnalyzer(TunerSettings settings, File outDir, boolean writeTimings) {
+        this.settings = settings;
+        this.outDir = outDir;
+        this.writeTimings = writeTimings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        TunerSettings settings = TunerSettings.defaults();
+        File outDir = null;
+        boolean writeTimings = false;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--window":
+                    settings = settings.withWindowSize(Integer.parseInt(args[++i]));
+                    break;
+                case "--low-latency":
+                    settings = settings.withLowLatency(true);
+                    break;
+                case "--strum":
+                    settings = settings.withStrumCheck(true);
+                    break;
+                case "--chromatic":
+                    settings = settings.withNoteMode(NoteMode.CHROMATIC);
+                    break;
+                case "--a4":
+                    settings = settings.withReferenceHz(Double.parseDouble(args[++i]));
+                    break;
+                case "--float":
+                    settings = settings.withFloatPipeline(true);
+                    break;
+                case "--timings":
+                    writeTimings = true;
+                    break;
+                case "--out":
+                    outDir = new File(args[++i]);
+                    break;
+                default:
+                    inputs.add(new File(args[i]));
+            }
+        }
+        List<File> files = collectWavFiles(inputs);
+        if (files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (outDir != null && !outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Cannot create " + outDir);
+        }
+        new OfflineAnalyzer(settings, outDir, writeTimings).analyzeAll(files);
+    }
+
+    static List<File> collectWavFiles(List<File> inputs) {
+        List<File> files = new ArrayList<>();
+        for (File input : inputs) {
+            File[] children = input.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".wav"));
+            if (children != null) {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            } else if (input.isFile()) {
+                files.add(input);
+            }
+        }
+        return files;
+    }
+
+    // One engine per file, so files share nothing and run in parallel without locking.
+    void analyzeAll(List<File> files) throws InterruptedException {
+        int workers = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<String>> summaries = new ArrayList<>();
+        for (File file : files) {
+            summaries.add(pool.submit(() -> analyze(file)));
+        }
+        pool.shutdown();
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                System.out.println(summaries.get(i).get());
+            } catch (ExecutionException e) {
+                System.out.println(files.get(i).getName() + ": " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    String analyze(File file) throws IOException {
+        WavFile wav = WavFile.open(file);
+        File dir = outDir != null ? outDir : file.getParentFile();
+        File traceFile = new File(dir, file.getName() + ".pitch.tsv");
+        long startNanos = System.nanoTime();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(traceFile), StandardCharsets.UTF_8), 1 << 16)) {
+            TraceWriter trace = new TraceWriter(out, wav.sampleRate);
+            TunerEngine engine = new TunerEngine(trace);
+            engine.applyConfig(settings);
+            engine.startOffline(wav.sampleRate);
+            out.write("# " + file.getName() + " rate=" + wav.sampleRate + " window=" + settings.windowSize
+                    + " hop=" + engine.hopSize() + "\n# ms\tHz\tcents\tstring\tdB\tstate\n");
+            // The float pipeline gets the file's own resolution rather than 16-bit samples.
+            short[] hop = settings.floatPipeline ? null : new short[engine.hopSize()];
+            float[] floatHop = settings.floatPipeline ? new float[engine.hopSize()] : null;
+            long frame = 0;
+            int read;
+            while ((read = floatHop != null ? wav.read(frame, floatHop, floatHop.length)
+                    : wav.read(frame, hop, hop.length)) > 0) {
+                frame += read;
+                trace.endFrame = frame;
+                if (floatHop != null) {
+                    engine.feedOffline(floatHop, read);
+                } else {
+                    engine.feedOffline(hop, read);
+                }
+                if (trace.error != null) {
+                    throw trace.error;
+                }
+            }
+            engine.stopOffline();
+            double elapsed = (System.nanoTime() - startNanos) / 1e9;
+            String summary = String.format(Locale.ROOT, "%s: %d hops, %.1f s audio in %.2f s (%.0fx real time) -> %s",
+                    file.getName(), trace.hops, wav.durationSeconds(), elapsed,
+                    wav.durationSeconds() / Math.max(elapsed, 1e-9), traceFile.getName());
+            if (writeTimings) {
+                summary += timingSummary(engine.timings(), new File(dir, file.getName() + ".trace.json"));
+            }
+            return summary;
+        }
+    }
+
+    // Per-stage p50/p99 in the summary line, and the retained hops as a Chrome trace.
+    private static String timingSummary(StageTimings timings, File traceFile) throws IOException {
+        StageTimings.Snapshot snapshot = new StageTimings.Snapshot();
+        timings.snapshot(snapshot);
+        StringBuilder line = new StringBuilder();
+        for (int stage = 0; stage < StageTimings.STAGES; stage++) {
+            line.append(String.format(Locale.ROOT, "\n  %-8s p50 %.3f ms  p99 %.3f ms  max %.3f ms",
+                    StageTimings.STAGE_NAMES[stage], snapshot.percentileNanos(stage, 0.5) / 1e6,
+                    snapshot.percentileNanos(stage, 0.99) / 1e6, snapshot.maxNanos(stage) / 1e6));
+        }
+        line.append("\n  over budget: ").append(snapshot.overruns).append(" of ").append(snapshot.hops);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(traceFile), StandardCharsets.UTF_8), 1 << 16)) {
+            timings.writeTrace(out);
+        }
+        return line.append("\n  -> ").append(traceFile.getName()).toString();
+    }
+
+    // Formats each result into a reused line buffer; the analysis itself allocates nothing per hop.
+    private static final class TraceWriter implements TunerEngine.Listener {
+        private final Writer out;
+        private final int sampleRate;
+        private final char[] line = new char[256];
+        private final char[] number = new char[32];
+        long endFrame;
+        long hops;
+        IOException error;
+
+        TraceWriter(Writer out, int sampleRate) {
+            this.out = out;
+            this.sampleRate = sampleRate;
+        }
+
+        @Override
+        public void onPitch(PitchResult result) {
+            int pos = DecimalText.appendLong(line, endFrame * 1000 / sampleRate, 0);
+            line[pos++] = '\t';
+            pos = appendDecimal(result.hasSignal ? result.frequencyHz : 0, false, pos);
+            line[pos++] = '\t';
+            pos = appendDecimal(result.hasSignal ? result.cents : 0, true, pos);
+            line[pos++] = '\t';
+            String name = result.hasSignal ? result.nearestString : "-";
+            name.getChars(0, name.length(), line, pos);
+            pos += name.length();
+            line[pos++] = '\t';
+            pos = appendDecimal(result.amplitudeDb, true, pos);
+            line[pos++] = '\t';
+            line[pos++] = !result.hasSignal ? '-' : result.stable ? 'S' : 'D';
+            for (int i = 0; i < result.strumStrings; i++) {
+                line[pos++] = '\t';
+                if (result.stringHeard[i]) {
+                    pos = appendDecimal(result.stringCents[i], true, pos);
+                } else {
+                    line[pos++] = '-';
+                }
+            }
+            line[pos++] = '\n';
+            hops++;
+            try {
+                out.write(line, 0, pos);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        @Override
+        public void onAudioApiUsed(boolean isAAudio) {
+        }
+
+        private int appendDecimal(double value, boolean signed, int pos) {
+            int length = DecimalText.format(number, value, signed, "");
+            System.arraycopy(number, 0, line, pos, length);
+            return pos + length;
+        }
+    }
+}
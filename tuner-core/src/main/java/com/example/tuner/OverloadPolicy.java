@@ -0,0 +1,9 @@
+package com.example.tuner;
+
+// What the analysis thread does when more than one hop is waiting in the capture queue.
+enum OverloadPolicy {
+    // Append the backlog to the ring but analyse only the newest window.
+    COALESCE,
+    // Skip the oldest hops and analyse the most recent few in order.
+    DROP_OLDEST
+}
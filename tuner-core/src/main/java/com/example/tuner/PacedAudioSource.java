@@ -0,0 +1,91 @@
+package com.example.tuner;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Base for sources that produce samples on demand (files, generators). A producer thread reads a
+ * hop at a time and paces delivery to real time scaled by {@code speed}; a speed of zero or less
+ * delivers as fast as the engine's queue accepts, so hops may then be coalesced or dropped by the
+ * overload policy just like a stalled device. Use {@link TunerEngine#feedOffline} when every hop
+ * must be analysed.
+ */
+abstract class PacedAudioSource implements AudioSource {
+
+    private final double speed;
+    private volatile boolean running;
+    private Thread thread;
+
+    PacedAudioSource(double speed) {
+        this.speed = speed;
+    }
+
+    /** Prepares to read; returns the rate samples will be delivered at, or 0 if unavailable. */
+    abstract int open(int requestedSampleRate);
+
+    /** Reads up to {@code count} mono samples; returns how many, or 0 at the end of the audio. */
+    abstract int read(short[] out, int count);
+
+    void close() {
+    }
+
+    @Override
+    public synchronized boolean start(int requestedSampleRate, int framesPerRead, boolean floatSamples, Sink sink) {
+        if (thread != null) {
+            return true;
+        }
+        int rate = open(requestedSampleRate);
+        if (rate <= 0) {
+            return false;
+        }
+        sink.onStreamConfig(rate);
+        sink.onAudioApiUsed(false);
+        running = true;
+        thread = new Thread(() -> produce(rate, framesPerRead, sink), "TunerSource");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        thread = null;
+        close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void produce(int rate, int framesPerRead, Sink sink) {
+        short[] buffer = new short[framesPerRead];
+        double nanosPerSample = speed > 0 ? 1e9 / (rate * speed) : 0;
+        long startNanos = System.nanoTime();
+        long delivered = 0;
+        while (running) {
+            int n = read(buffer, framesPerRead);
+            if (n <= 0) {
+                break;
+            }
+            sink.onPcm(buffer, n);
+            delivered += n;
+            if (nanosPerSample > 0) {
+                long wait = startNanos + (long) (delivered * nanosPerSample) - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.tuner;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Lock-free single-producer/single-consumer sample FIFO between the audio source thread and the
+ * analysis thread. The producer never blocks: samples that do not fit are rejected and counted
+ * by the caller. Stores shorts or floats to match the engine's pipeline precision.
+ */
+final class PcmQueue {
+
+    private final int capacity;
+    private final int mask;
+    private final short[] shorts;
+    private final float[] floats;
+    // Monotonic counters; only the producer writes writeIndex and only the consumer writes readIndex.
+    private volatile long writeIndex = 0;
+    private volatile long readIndex = 0;
+
+    PcmQueue(int minCapacity, boolean floatSamples) {
+        capacity = RealFft.nextPowerOfTwo(minCapacity);
+        mask = capacity - 1;
+        shorts = floatSamples ? null : new short[capacity];
+        floats = floatSamples ? new float[capacity] : null;
+    }
+
+    int available() {
+        return (int) (writeIndex - readIndex);
+    }
+
+    int offer(short[] source, int count) {
+        long write = writeIndex;
+        int accepted = Math.min(count, capacity - (int) (write - readIndex));
+        for (int i = 0; i < accepted; i++) {
+            int index = (int) ((write + i) & mask);
+            if (floats != null) {
+                floats[index] = source[i] / 32768f;
+            } else {
+                shorts[index] = source[i];
+            }
+        }
+        writeIndex = write + accepted;
+        return accepted;
+    }
+
+    int offer(float[] source, int count) {
+        long write = writeIndex;
+        int accepted = Math.min(count, capacity - (int) (write - readIndex));
+        for (int i = 0; i < accepted; i++) {
+            int index = (int) ((write + i) & mask);
+            if (floats != null) {
+                floats[index] = source[i];
+            } else {
+                shorts[index] = (short) Math.max(-32768, Math.min(32767, Math.round(source[i] * 32768f)));
+            }
+        }
+        writeIndex = write + accepted;
+        return accepted;
+    }
+
+    int offer(ShortBuffer source, int count) {
+        long write = writeIndex;
+        int accepted = Math.min(count, capacity - (int) (write - readIndex));
+        source.position(0);
+        int start = (int) (write & mask);
+        int first = Math.min(accepted, capacity - start);
+        source.get(shorts, start, first);
+        source.get(shorts, 0, accepted - first);
+        writeIndex = write + accepted;
+        return accepted;
+    }
+
+    int offer(FloatBuffer source, int count) {
+        long write = writeIndex;
+        int accepted = Math.min(count, capacity - (int) (write - readIndex));
+        source.position(0);
+        int start = (int) (write & mask);
+        int first = Math.min(accepted, capacity - start);
+        source.get(floats, start, first);
+        source.get(floats, 0, accepted - first);
+        writeIndex = write + accepted;
+        return accepted;
+    }
+
+    void poll(short[] target, int offset, int count) {
+        long read = readIndex;
+        int start = (int) (read & mask);
+        int first = Math.min(count, capacity - start);
+        System.arraycopy(shorts, start, target, offset, first);
+        System.arraycopy(shorts, 0, target, offset + first, count - first);
+        readIndex = read + count;
+    }
+
+    void poll(float[] target, int offset, int count) {
+        long read = readIndex;
+        int start = (int) (read & mask);
+        int first = Math.min(count, capacity - start);
+        System.arraycopy(floats, start, target, offset, first);
+        System.arraycopy(floats, 0, target, offset + first, count - first);
+        readIndex = read + count;
+    }
+}
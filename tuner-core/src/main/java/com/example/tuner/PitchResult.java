@@ -0,0 +1,52 @@
+package com.example.tuner;
+
+// Mutable so the engine can refill one instance per hop instead of allocating.
+class PitchResult {
+    boolean hasSignal;
+    double frequencyHz;
+    double cents;
+    String nearestString = "";
+    double amplitudeDb;
+    boolean stable;
+    // Strum check fills one entry per string, in stringNotes order; strumStrings is 0 otherwise.
+    int strumStrings;
+    final boolean[] stringHeard = new boolean[TunerSettings.DEFAULT_STRING_NOTES.length];
+    final double[] stringFrequencyHz = new double[TunerSettings.DEFAULT_STRING_NOTES.length];
+    final double[] stringCents = new double[TunerSettings.DEFAULT_STRING_NOTES.length];
+
+    PitchResult() {
+    }
+
+    PitchResult(boolean hasSignal,
+                double frequencyHz,
+                double cents,
+                String nearestString,
+                double amplitudeDb,
+                boolean stable) {
+        set(hasSignal, frequencyHz, cents, nearestString, amplitudeDb, stable);
+    }
+
+    void set(boolean hasSignal,
+             double frequencyHz,
+             double cents,
+             String nearestString,
+             double amplitudeDb,
+             boolean stable) {
+        this.hasSignal = hasSignal;
+        this.frequencyHz = frequencyHz;
+        this.cents = cents;
+        this.nearestString = nearestString;
+        this.amplitudeDb = amplitudeDb;
+        this.stable = stable;
+        this.strumStrings = 0;
+    }
+
+    void copyFrom(PitchResult other) {
+        set(other.hasSignal, other.frequencyHz, other.cents, other.nearestString,
+                other.amplitudeDb, other.stable);
+        strumStrings = other.strumStrings;
+        System.arraycopy(other.stringHeard, 0, stringHeard, 0, strumStrings);
+        System.arraycopy(other.stringFrequencyHz, 0, stringFrequencyHz, 0, strumStrings);
+        System.arraycopy(other.stringCents, 0, stringCents, 0, strumStrings);
+    }
+}
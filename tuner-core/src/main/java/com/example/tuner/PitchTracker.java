@@ -0,0 +1,31 @@
+package com.example.tuner;
+
+/**
+ * Post-processing between the per-hop detector and the note mapping: turns detections into the
+ * displayed frequency and decides when that reading has settled. Called from the analysis thread
+ * only.
+ */
+interface PitchTracker {
+
+    // Both trackers call a reading stable within this many cents of the target note, smoothing after
+    // this many hops in a row; the Kalman filter vets each detection against its prediction and
+    // needs one hop fewer.
+    double STABLE_CENTS = 20;
+    int STABLE_HITS = 3;
+
+    /**
+     * Takes one hop and returns the frequency to display, or 0 for none.
+     *
+     * @param raw detector output for this hop, 0 when nothing was detected
+     * @param median median of the recent detections, 0 when nothing was detected
+     */
+    double update(double raw, double median, double amplitudeDb, double thresholdDb);
+
+    // Whether the reading from the last update has settled; cents is its offset from the target note.
+    boolean stable(double cents);
+
+    // Settings that may change while running; the current reading is kept.
+    void configure(double smoothingAlpha);
+
+    void reset();
+}
@@ -0,0 +1,9 @@
+package com.example.tuner;
+
+// Which post-processing stage turns the per-hop detections into the displayed reading.
+enum PitchTrackerMode {
+    // Median of five, damping of high notes, then exponential smoothing.
+    SMOOTHING,
+    // Constant-velocity Kalman filter in cents with outlier rejection.
+    KALMAN
+}
@@ -0,0 +1,233 @@
+package com.example.tuner;
+
+// Radix-2 FFT for real input, computed as a half-size complex FFT plus an unpacking pass.
+// A single-precision instance keeps its tables and scratch as float[] to halve memory traffic.
+final class RealFft {
+
+    final int size;
+    private final int half;
+    private final int[] bitReverse;
+    private final double[] cosTable;
+    private final double[] sinTable;
+    private final double[] unpackCos;
+    private final double[] unpackSin;
+    private final double[] re;
+    private final double[] im;
+    private final float[] cosTableF;
+    private final float[] sinTableF;
+    private final float[] unpackCosF;
+    private final float[] unpackSinF;
+    private final float[] reF;
+    private final float[] imF;
+
+    RealFft(int size) {
+        this(size, false);
+    }
+
+    RealFft(int size, boolean singlePrecision) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two >= 4: " + size);
+        }
+        this.size = size;
+        this.half = size / 2;
+        Tables tables = DspTables.fft(size, singlePrecision);
+        bitReverse = tables.bitReverse;
+        cosTable = tables.cos;
+        sinTable = tables.sin;
+        unpackCos = tables.unpackCos;
+        unpackSin = tables.unpackSin;
+        cosTableF = tables.cosF;
+        sinTableF = tables.sinF;
+        unpackCosF = tables.unpackCosF;
+        unpackSinF = tables.unpackSinF;
+        if (singlePrecision) {
+            reF = new float[half];
+            imF = new float[half];
+            re = null;
+            im = null;
+        } else {
+            reF = null;
+            imF = null;
+            re = new double[half];
+            im = new double[half];
+        }
+    }
+
+    private static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    static int nextPowerOfTwo(int value) {
+        int result = 4;
+        while (result < value) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Forward transform of {@code input[0..size)}. Writes bins 0..size/2 (inclusive) into
+     * {@code outRe}/{@code outIm}; the remaining bins are the complex conjugate mirror.
+     */
+    void forward(double[] input, double[] outRe, double[] outIm) {
+        for (int n = 0; n < half; n++) {
+            int target = bitReverse[n];
+            re[target] = input[2 * n];
+            im[target] = input[2 * n + 1];
+        }
+        transform();
+
+        outRe[0] = re[0] + im[0];
+        outIm[0] = 0;
+        outRe[half] = re[0] - im[0];
+        outIm[half] = 0;
+        for (int k = 1; k < half; k++) {
+            int mirror = half - k;
+            // Even/odd spectra of the interleaved sequence.
+            double evenRe = 0.5 * (re[k] + re[mirror]);
+            double evenIm = 0.5 * (im[k] - im[mirror]);
+            double oddRe = 0.5 * (im[k] + im[mirror]);
+            double oddIm = -0.5 * (re[k] - re[mirror]);
+            double c = unpackCos[k];
+            double s = unpackSin[k];
+            // X[k] = E[k] + e^{-2πik/N} O[k]
+            outRe[k] = evenRe + c * oddRe + s * oddIm;
+            outIm[k] = evenIm + c * oddIm - s * oddRe;
+        }
+    }
+
+    private void transform() {
+        for (int length = 2; length <= half; length <<= 1) {
+            int halfLength = length >> 1;
+            int step = half / length;
+            for (int start = 0; start < half; start += length) {
+                for (int j = 0; j < halfLength; j++) {
+                    double c = cosTable[j * step];
+                    double s = sinTable[j * step];
+                    int a = start + j;
+                    int b = a + halfLength;
+                    double tRe = re[b] * c + im[b] * s;
+                    double tIm = im[b] * c - re[b] * s;
+                    re[b] = re[a] - tRe;
+                    im[b] = im[a] - tIm;
+                    re[a] += tRe;
+                    im[a] += tIm;
+                }
+            }
+        }
+    }
+
+    /** Single-precision variant of {@link #forward(double[], double[], double[])}. */
+    void forward(float[] input, float[] outRe, float[] outIm) {
+        for (int n = 0; n < half; n++) {
+            int target = bitReverse[n];
+            reF[target] = input[2 * n];
+            imF[target] = input[2 * n + 1];
+        }
+        transformFloat();
+
+        outRe[0] = reF[0] + imF[0];
+        outIm[0] = 0;
+        outRe[half] = reF[0] - imF[0];
+        outIm[half] = 0;
+        for (int k = 1; k < half; k++) {
+            int mirror = half - k;
+            float evenRe = 0.5f * (reF[k] + reF[mirror]);
+            float evenIm = 0.5f * (imF[k] - imF[mirror]);
+            float oddRe = 0.5f * (imF[k] + imF[mirror]);
+            float oddIm = -0.5f * (reF[k] - reF[mirror]);
+            float c = unpackCosF[k];
+            float s = unpackSinF[k];
+            outRe[k] = evenRe + c * oddRe + s * oddIm;
+            outIm[k] = evenIm + c * oddIm - s * oddRe;
+        }
+    }
+
+    private void transformFloat() {
+        for (int length = 2; length <= half; length <<= 1) {
+            int halfLength = length >> 1;
+            int step = half / length;
+            for (int start = 0; start < half; start += length) {
+                for (int j = 0; j < halfLength; j++) {
+                    float c = cosTableF[j * step];
+                    float s = sinTableF[j * step];
+                    int a = start + j;
+                    int b = a + halfLength;
+                    float tRe = reF[b] * c + imF[b] * s;
+                    float tIm = imF[b] * c - reF[b] * s;
+                    reF[b] = reF[a] - tRe;
+                    imF[b] = imF[a] - tIm;
+                    reF[a] += tRe;
+                    imF[a] += tIm;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bit-reversal permutation and twiddles for one size, in one precision only; immutable, so
+     * every transform of that size shares the instance held by {@link DspTables}.
+     */
+    static final class Tables {
+        final int[] bitReverse;
+        final double[] cos;
+        final double[] sin;
+        final double[] unpackCos;
+        final double[] unpackSin;
+        final float[] cosF;
+        final float[] sinF;
+        final float[] unpackCosF;
+        final float[] unpackSinF;
+
+        Tables(int size, boolean singlePrecision) {
+            int half = size / 2;
+            bitReverse = new int[half];
+            int bits = Integer.numberOfTrailingZeros(half);
+            for (int i = 0; i < half; i++) {
+                bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+            }
+            double[] cosTable = new double[half / 2];
+            double[] sinTable = new double[half / 2];
+            for (int i = 0; i < half / 2; i++) {
+                double angle = 2 * Math.PI * i / half;
+                cosTable[i] = Math.cos(angle);
+                sinTable[i] = Math.sin(angle);
+            }
+            double[] unpackCosTable = new double[half];
+            double[] unpackSinTable = new double[half];
+            for (int k = 0; k < half; k++) {
+                double angle = 2 * Math.PI * k / size;
+                unpackCosTable[k] = Math.cos(angle);
+                unpackSinTable[k] = Math.sin(angle);
+            }
+            if (singlePrecision) {
+                cosF = toFloat(cosTable);
+                sinF = toFloat(sinTable);
+                unpackCosF = toFloat(unpackCosTable);
+                unpackSinF = toFloat(unpackSinTable);
+                cos = null;
+                sin = null;
+                unpackCos = null;
+                unpackSin = null;
+            } else {
+                cos = cosTable;
+                sin = sinTable;
+                unpackCos = unpackCosTable;
+                unpackSin = unpackSinTable;
+                cosF = null;
+                sinF = null;
+                unpackCosF = null;
+                unpackSinF = null;
+            }
+        }
+
+        long bytes() {
+            long twiddles = cos != null ? cos.length + unpackCos.length : cosF.length + unpackCosF.length;
+            return 4L * bitReverse.length + 2 * twiddles * (cos != null ? 8 : 4);
+        }
+    }
+}
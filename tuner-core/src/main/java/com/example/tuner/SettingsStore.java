@@ -0,0 +1,30 @@
+package com.example.tuner;
+
+/**
+ * Key-value persistence for {@link TunerSettings}, shaped like SharedPreferences so the app can
+ * wrap it directly while desktop tools keep settings in memory or a properties file.
+ */
+interface SettingsStore {
+
+    int getInt(String key, int fallback);
+
+    float getFloat(String key, float fallback);
+
+    boolean getBoolean(String key, boolean fallback);
+
+    String getString(String key, String fallback);
+
+    Editor edit();
+
+    interface Editor {
+        Editor putInt(String key, int value);
+
+        Editor putFloat(String key, float value);
+
+        Editor putBoolean(String key, boolean value);
+
+        Editor putString(String key, String value);
+
+        void apply();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.tuner;
+
+/**
+ * The original chain: takes the median of the recent detections, holds weak drops, damps steps of
+ * the high strings and smooths exponentially. Stable after three hops in a row within 20 cents of
+ * the target note.
+ */
+final class SmoothingTracker implements PitchTracker {
+
+    static final double HIGH_FREQ_DAMPING_HZ = 246.94;
+    static final double HIGH_FREQ_STEP_FACTOR = 0.35;
+
+    private double smoothingAlpha = TunerSettings.DEFAULT_SMOOTHING_ALPHA;
+    private double smoothedFrequency = 0;
+    private int stableHits = 0;
+
+    @Override
+    public double update(double raw, double median, double amplitudeDb, double thresholdDb) {
+        if (median <= 0) {
+            reset();
+            return 0;
+        }
+        double stabilized = stabilizeFrequency(median, amplitudeDb, thresholdDb);
+        smoothedFrequency = smoothFrequency(stabilized);
+        return smoothedFrequency;
+    }
+
+    @Override
+    public boolean stable(double cents) {
+        // Count how many consecutive frames stayed near the same pitch to damp jitter.
+        if (Math.abs(cents) < STABLE_CENTS) {
+            stableHits++;
+        } else {
+            stableHits = 0;
+        }
+        return stableHits >= STABLE_HITS;
+    }
+
+    @Override
+    public void configure(double smoothingAlpha) {
+        this.smoothingAlpha = smoothingAlpha;
+    }
+
+    @Override
+    public void reset() {
+        smoothedFrequency = 0;
+        stableHits = 0;
+    }
+
+    private double smoothFrequency(double measured) {
+        if (smoothedFrequency == 0) return measured;
+        return smoothedFrequency + smoothingAlpha * (measured - smoothedFrequency);
+    }
+
+    private double stabilizeFrequency(double candidate, double amplitudeDb, double thresholdDb) {
+        if (smoothedFrequency <= 0) {
+            return candidate;
+        }
+        double ratio = candidate / smoothedFrequency;
+        if (ratio < 0.85 && amplitudeDb < thresholdDb + 6.0) {
+            return smoothedFrequency;
+        }
+        if (candidate >= HIGH_FREQ_DAMPING_HZ) {
+            return smoothedFrequency + (candidate - smoothedFrequency) * HIGH_FREQ_STEP_FACTOR;
+        }
+        return candidate;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.tuner;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-hop stage timings from the analysis thread: a fixed log-bucket histogram per stage (four
+ * buckets per octave, so percentiles are within about 19%), budget overruns against the hop
+ * duration, and the last {@link #TRACE_HOPS} hops for a Chrome/Perfetto trace. Recording is a
+ * handful of array writes and allocates nothing; readers take a {@link Snapshot} from any thread.
+ */
+final class StageTimings {
+
+    static final int APPEND = 0;
+    static final int LEVEL = 1;
+    static final int DETECT = 2;
+    static final int FILTER = 3;
+    static final int DISPATCH = 4;
+    static final int HOP = 5;
+    static final int STAGES = 6;
+    static final String[] STAGE_NAMES = {"append", "level", "detect", "filter", "dispatch", "hop"};
+
+    static final int TRACE_HOPS = 2048;
+    private static final int MIN_OCTAVE = 8;    // bucket 0 holds everything under 256 ns
+    private static final int MAX_OCTAVE = 36;   // the last bucket everything from ~69 s up
+    private static final int SUB_BUCKETS = 4;
+    static final int BUCKETS = 1 + (MAX_OCTAVE - MIN_OCTAVE) * SUB_BUCKETS;
+    // One trace entry: hop start then the five stage durations.
+    private static final int TRACE_STRIDE = 1 + HOP;
+
+    // Single writer (the analysis thread); lazySet publishes each count without a full fence.
+    private final AtomicLongArray counts = new AtomicLongArray(STAGES * BUCKETS);
+    private final AtomicLongArray maxNanos = new AtomicLongArray(STAGES);
+    private final long[] trace = new long[TRACE_HOPS * TRACE_STRIDE];
+    private volatile long hops;
+    private volatile long overruns;
+    private volatile long budgetNanos = Long.MAX_VALUE;
+
+    void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        for (int i = 0; i < STAGES; i++) {
+            maxNanos.set(i, 0);
+        }
+        hops = 0;
+        overruns = 0;
+    }
+
+    // One hop's worth of audio; a hop whose analysis takes longer counts as an overrun.
+    void setBudget(int hopSize, int sampleRate) {
+        budgetNanos = sampleRate > 0 ? hopSize * 1_000_000_000L / sampleRate : Long.MAX_VALUE;
+    }
+
+    /** Records one analysed hop; {@code startNanos} is when the stages after the append began. */
+    void record(long startNanos, long append, long level, long detect, long filter, long dispatch) {
+        long total = append + level + detect + filter + dispatch;
+        add(APPEND, append);
+        add(LEVEL, level);
+        add(DETECT, detect);
+        add(FILTER, filter);
+        add(DISPATCH, dispatch);
+        add(HOP, total);
+        long n = hops;
+        int base = (int) (n % TRACE_HOPS) * TRACE_STRIDE;
+        trace[base] = startNanos;
+        trace[base + 1 + APPEND] = append;
+        trace[base + 1 + LEVEL] = level;
+        trace[base + 1 + DETECT] = detect;
+        trace[base + 1 + FILTER] = filter;
+        trace[base + 1 + DISPATCH] = dispatch;
+        if (total > budgetNanos) {
+            overruns = overruns + 1;
+        }
+        hops = n + 1;
+    }
+
+    private void add(int stage, long nanos) {
+        int index = stage * BUCKETS + bucket(nanos);
+        counts.lazySet(index, counts.get(index) + 1);
+        if (nanos > maxNanos.get(stage)) {
+            maxNanos.lazySet(stage, nanos);
+        }
+    }
+
+    static int bucket(long nanos) {
+        if (nanos <= 0) {
+            return 0;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(nanos);
+        if (octave < MIN_OCTAVE) {
+            return 0;
+        }
+        if (octave >= MAX_OCTAVE) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (octave - 2)) & (SUB_BUCKETS - 1);
+        return 1 + (octave - MIN_OCTAVE) * SUB_BUCKETS + sub;
+    }
+
+    // Exclusive upper edge of a bucket, reported as the percentile value.
+    static long bucketLimit(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_OCTAVE;
+        }
+        int octave = MIN_OCTAVE + (bucket - 1) / SUB_BUCKETS;
+        int sub = (bucket - 1) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (octave - 2);
+    }
+
+    void snapshot(Snapshot out) {
+        for (int i = 0; i < out.counts.length; i++) {
+            out.counts[i] = counts.get(i);
+        }
+        for (int i = 0; i < STAGES; i++) {
+            out.maxNanos[i] = maxNanos.get(i);
+        }
+        out.hops = hops;
+        out.overruns = overruns;
+        out.budgetNanos = budgetNanos;
+        out.takenNanos = System.nanoTime();
+    }
+
+    /**
+     * Writes the retained hops as Chrome trace events (chrome://tracing or ui.perfetto.dev), one
+     * "hop" slice per analysed hop with its stages nested inside. Meant for a stopped engine; while
+     * running, the oldest entries may be overwritten as they are written.
+     */
+    void writeTrace(Writer out) throws IOException {
+        long end = hops;
+        long first = Math.max(0, end - TRACE_HOPS);
+        out.write("{\"traceEvents\":[\n");
+        boolean comma = false;
+        for (long n = first; n < end; n++) {
+            int base = (int) (n % TRACE_HOPS) * TRACE_STRIDE;
+            long at = trace[base] - trace[base + 1 + APPEND];
+            long total = 0;
+            for (int stage = APPEND; stage < HOP; stage++) {
+                total += trace[base + 1 + stage];
+            }
+            comma = writeEvent(out, comma, STAGE_NAMES[HOP], at, total);
+            for (int stage = APPEND; stage < HOP; stage++) {
+                long duration = trace[base + 1 + stage];
+                comma = writeEvent(out, comma, STAGE_NAMES[stage], at, duration);
+                at += duration;
+            }
+        }
+        out.write("\n],\"displayTimeUnit\":\"ns\"}\n");
+    }
+
+    private static boolean writeEvent(Writer out, boolean comma, String name, long startNanos, long nanos)
+            throws IOException {
+        if (comma) {
+            out.write(",\n");
+        }
+        out.write(String.format(Locale.ROOT,
+                "{\"name\":\"%s\",\"ph\":\"X\",\"pid\":1,\"tid\":1,\"ts\":%.3f,\"dur\":%.3f}",
+                name, startNanos / 1000.0, nanos / 1000.0));
+        return true;
+    }
+
+    /** A copy of the counters, reusable so a periodic reader allocates nothing. */
+    static final class Snapshot {
+        final long[] counts = new long[STAGES * BUCKETS];
+        final long[] maxNanos = new long[STAGES];
+        long hops;
+        long overruns;
+        long budgetNanos;
+        long takenNanos;
+
+        long percentileNanos(int stage, double p) {
+            long total = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                total += counts[stage * BUCKETS + b];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts[stage * BUCKETS + b];
+                if (seen >= rank) {
+                    return Math.min(bucketLimit(b), maxNanos[stage]);
+                }
+            }
+            return maxNanos[stage];
+        }
+
+        long maxNanos(int stage) {
+            return maxNanos[stage];
+        }
+
+        double hopsPerSecondSince(Snapshot earlier) {
+            long elapsed = takenNanos - earlier.takenNanos;
+            return elapsed > 0 ? (hops - earlier.hops) * 1e9 / elapsed : 0;
+        }
+
+        void copyFrom(Snapshot other) {
+            System.arraycopy(other.counts, 0, counts, 0, counts.length);
+            System.arraycopy(other.maxNanos, 0, maxNanos, 0, maxNanos.length);
+            hops = other.hops;
+            overruns = other.overruns;
+            budgetNanos = other.budgetNanos;
+            takenNanos = other.takenNanos;
+        }
+    }
+}
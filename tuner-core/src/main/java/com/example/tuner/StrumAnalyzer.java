@@ -0,0 +1,228 @@
+package com.example.tuner;
+
+import java.util.Arrays;
+
+/**
+ * Estimates every open string at once from one spectrum of a strummed chord. Each string is
+ * searched within a semitone of its target by harmonic-sum scoring, then refined from the
+ * interpolated peaks of its own partials. Partials that fall inside another string's main lobe
+ * are left out of both steps, since their peak belongs to both strings, and a string only counts
+ * as heard when its own fundamental shows up.
+ */
+final class StrumAnalyzer {
+
+    private static final int PADDING = 2;
+    private static final int HARMONICS = 8;
+    private static final int SEARCH_CENTS = 100;
+    private static final int COARSE_STEP_CENTS = 4;
+    // A Hann main lobe spans ±2 bins of the unpadded window.
+    private static final double COLLISION_BINS = 2.0;
+    // A partial joins the fit above this level over the median spectrum; a string counts as heard
+    // when its strongest partial clears HEARD_SNR.
+    private static final double PARTIAL_SNR = Math.pow(10.0, 10.0 / 20.0);
+    private static final double HEARD_SNR = Math.pow(10.0, 20.0 / 20.0);
+    private static final double NOISE_LOW_HZ = 60.0;
+    private static final double NOISE_HIGH_HZ = 2500.0;
+
+    private final int windowSize;
+    private final int sampleRate;
+    private final double binHz;
+    private final double[] targets;
+    private final boolean[][] shared;
+    // Strings whose every partial is shared are refined from all of them.
+    private final boolean[] exclusiveOnly;
+    private final double[] coarseRatios;
+    private final double halfStepRatio = Math.pow(2.0, COARSE_STEP_CENTS / 2400.0) - 1;
+    private final double searchRatio = Math.pow(2.0, SEARCH_CENTS / 1200.0);
+    private final RealFft fft;
+    private final double[] padded;
+    private final double[] re;
+    private final double[] im;
+    private final double[] magnitude;
+    private final double[] noiseScratch;
+    private final int noiseLow;
+    private final int noiseHigh;
+
+    StrumAnalyzer(int windowSize, int sampleRate, double[] stringFrequencies) {
+        this.windowSize = windowSize;
+        this.sampleRate = sampleRate;
+        int size = RealFft.nextPowerOfTwo(windowSize * PADDING);
+        fft = new RealFft(size);
+        binHz = sampleRate / (double) size;
+        padded = new double[size];
+        re = new double[size / 2 + 1];
+        im = new double[size / 2 + 1];
+        magnitude = new double[size / 2 + 1];
+        noiseLow = (int) (NOISE_LOW_HZ / binHz);
+        noiseHigh = Math.min(size / 2, (int) (NOISE_HIGH_HZ / binHz));
+        noiseScratch = new double[noiseHigh - noiseLow + 1];
+        targets = stringFrequencies.clone();
+        coarseRatios = new double[2 * SEARCH_CENTS / COARSE_STEP_CENTS + 1];
+        for (int i = 0; i < coarseRatios.length; i++) {
+            coarseRatios[i] = Math.pow(2.0, (i * COARSE_STEP_CENTS - SEARCH_CENTS) / 1200.0);
+        }
+        double lobeHz = COLLISION_BINS * sampleRate / windowSize;
+        shared = new boolean[targets.length][HARMONICS + 1];
+        exclusiveOnly = new boolean[targets.length];
+        for (int s = 0; s < targets.length; s++) {
+            for (int h = 1; h <= HARMONICS; h++) {
+                double partial = targets[s] * h;
+                for (int t = 0; t < targets.length && !shared[s][h]; t++) {
+                    if (t == s) {
+                        continue;
+                    }
+                    for (int k = 1; k <= HARMONICS; k++) {
+                        if (Math.abs(partial - targets[t] * k) < lobeHz) {
+                            shared[s][h] = true;
+                            break;
+                        }
+                    }
+                }
+                exclusiveOnly[s] |= !shared[s][h] && partial < sampleRate / 2.0;
+            }
+        }
+    }
+
+    // Bins and partial collisions depend on the rate too, and a stream may reopen at another one.
+    boolean fits(int size, int rate, double[] stringFrequencies) {
+        return size == windowSize && rate == sampleRate && Arrays.equals(targets, stringFrequencies);
+    }
+
+    /** Analyses the windowed {@code samples[0..windowSize)}; fills one entry per string. */
+    void analyze(double[] samples, boolean[] heard, double[] frequencyHz, double[] cents) {
+        System.arraycopy(samples, 0, padded, 0, windowSize);
+        analyzePadded(heard, frequencyHz, cents);
+    }
+
+    void analyze(float[] samples, boolean[] heard, double[] frequencyHz, double[] cents) {
+        for (int i = 0; i < windowSize; i++) {
+            padded[i] = samples[i];
+        }
+        analyzePadded(heard, frequencyHz, cents);
+    }
+
+    private void analyzePadded(boolean[] heard, double[] frequencyHz, double[] cents) {
+        fft.forward(padded, re, im);
+        for (int k = 0; k < magnitude.length; k++) {
+            magnitude[k] = Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+        }
+        System.arraycopy(magnitude, noiseLow, noiseScratch, 0, noiseScratch.length);
+        double noise = select(noiseScratch, noiseScratch.length / 2);
+        double partialFloor = noise * PARTIAL_SNR;
+        double heardFloor = noise * HEARD_SNR;
+
+        for (int s = 0; s < targets.length; s++) {
+            double estimate = refine(s, coarseSearch(s), partialFloor, heardFloor);
+            heard[s] = estimate > 0;
+            frequencyHz[s] = heard[s] ? estimate : 0;
+            cents[s] = heard[s] ? 1200.0 * Math.log(estimate / targets[s]) / Math.log(2.0) : 0;
+        }
+    }
+
+    private double coarseSearch(int s) {
+        double best = targets[s];
+        double bestScore = -1;
+        for (double ratio : coarseRatios) {
+            double f0 = targets[s] * ratio;
+            double score = 0;
+            for (int h = 1; h <= HARMONICS; h++) {
+                double bin = f0 * h / binHz;
+                if (bin >= magnitude.length - 1) {
+                    break;
+                }
+                if (shared[s][h] && exclusiveOnly[s]) {
+                    continue;
+                }
+                int k = (int) bin;
+                double frac = bin - k;
+                score += magnitude[k] + (magnitude[k + 1] - magnitude[k]) * frac;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = f0;
+            }
+        }
+        return best;
+    }
+
+    // Magnitude²-weighted mean of peak/h over the partials near the candidate; -1 if not heard.
+    private double refine(int s, double candidate, double partialFloor, double heardFloor) {
+        double weightedSum = 0;
+        double weightTotal = 0;
+        double strongest = 0;
+        for (int h = 1; h <= HARMONICS; h++) {
+            if (shared[s][h] && exclusiveOnly[s]) {
+                continue;
+            }
+            double center = candidate * h / binHz;
+            // Half a coarse step of error at this harmonic, plus a bin.
+            int radius = (int) Math.ceil(center * halfStepRatio) + 1;
+            int from = Math.max(1, (int) Math.round(center) - radius);
+            int to = Math.min(magnitude.length - 2, (int) Math.round(center) + radius);
+            int peak = -1;
+            for (int k = from; k <= to; k++) {
+                if (magnitude[k] >= magnitude[k - 1] && magnitude[k] >= magnitude[k + 1]
+                        && (peak < 0 || magnitude[k] > magnitude[peak])) {
+                    peak = k;
+                }
+            }
+            if (peak < 0 || magnitude[peak] < partialFloor) {
+                if (h == 1) {
+                    // Partials alone would also fit an overtone series of a lower string.
+                    return -1;
+                }
+                continue;
+            }
+            double left = Math.log(magnitude[peak - 1] + 1e-12);
+            double middle = Math.log(magnitude[peak]);
+            double right = Math.log(magnitude[peak + 1] + 1e-12);
+            double denominator = left - 2 * middle + right;
+            double shift = denominator == 0 ? 0 : 0.5 * (left - right) / denominator;
+            double f0 = (peak + shift) * binHz / h;
+            if (f0 < targets[s] / searchRatio || f0 > targets[s] * searchRatio) {
+                continue;
+            }
+            double weight = magnitude[peak] * magnitude[peak];
+            weightedSum += weight * f0;
+            weightTotal += weight;
+            strongest = Math.max(strongest, magnitude[peak]);
+        }
+        if (weightTotal == 0 || strongest < heardFloor) {
+            return -1;
+        }
+        return weightedSum / weightTotal;
+    }
+
+    // k-th smallest value, partially reordering the array. Arrays.sort can allocate a merge buffer
+    // for spectra that contain long sorted runs; this never allocates.
+    private static double select(double[] values, int k) {
+        int lo = 0;
+        int hi = values.length - 1;
+        while (lo < hi) {
+            double pivot = values[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double tmp = values[i];
+                    values[i++] = values[j];
+                    values[j--] = tmp;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+}
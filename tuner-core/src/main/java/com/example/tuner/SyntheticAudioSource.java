@@ -0,0 +1,54 @@
+package com.example.tuner;
+
+import java.util.Random;
+
+/**
+ * Plucked-string stand-in: each note is a decaying harmonic series with a little noise, and the
+ * note list loops until the source is stopped.
+ */
+final class SyntheticAudioSource extends PacedAudioSource {
+
+    private static final int HARMONICS = 6;
+    private static final double DECAY_PER_SECOND = 1.5;
+    private static final double NOISE = 0.003;
+    private static final double PEAK = 0.3;
+
+    private final double[] frequencies;
+    private final double secondsPerNote;
+    private final Random random = new Random(1);
+    private int sampleRate;
+    private int samplesPerNote;
+    private long position;
+
+    SyntheticAudioSource(double[] frequencies, double secondsPerNote, double speed) {
+        super(speed);
+        if (frequencies.length == 0 || secondsPerNote <= 0) {
+            throw new IllegalArgumentException("Need at least one note and a positive length");
+        }
+        this.frequencies = frequencies.clone();
+        this.secondsPerNote = secondsPerNote;
+    }
+
+    @Override
+    int open(int requestedSampleRate) {
+        sampleRate = requestedSampleRate;
+        samplesPerNote = (int) Math.max(1, Math.round(secondsPerNote * sampleRate));
+        position = 0;
+        return sampleRate;
+    }
+
+    @Override
+    int read(short[] out, int count) {
+        for (int i = 0; i < count; i++, position++) {
+            double f0 = frequencies[(int) ((position / samplesPerNote) % frequencies.length)];
+            double t = (position % samplesPerNote) / (double) sampleRate;
+            double value = 0;
+            for (int h = 1; h <= HARMONICS; h++) {
+                value += Math.sin(2.0 * Math.PI * f0 * h * t) / h;
+            }
+            value = PEAK * value * Math.exp(-DECAY_PER_SECOND * t) + NOISE * random.nextGaussian();
+            out[i] = (short) Math.max(-32768, Math.min(32767, Math.round(value * 32767.0)));
+        }
+        return count;
+    }
+}
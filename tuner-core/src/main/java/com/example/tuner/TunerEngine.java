@@ -0,0 +1,1424 @@
+package com.example.tuner;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+class TunerEngine {
+
+    interface Listener {
+        // The result instance is reused for every hop; copy it before handing it to another thread.
+        void onPitch(PitchResult result);
+        void onAudioApiUsed(boolean isAAudio);
+    }
+
+    static final double MIN_FREQ = 70.0;    // lower than low E to keep margin
+    static final double MAX_FREQ = 1300.0;  // upper bound to avoid octave errors
+    private static final int QUEUE_HOPS = 8;
+    private static final int DROP_OLDEST_KEEP_HOPS = 2;
+    private static final long IDLE_PARK_NANOS = 50_000_000L;
+    private static final int ENERGY_RESYNC_WINDOWS = 16;
+    // Low-latency mode: short hops, and a window of this many periods of the tracked string plus
+    // enough lag range to still see a string half an octave lower.
+    private static final int LOW_LATENCY_HOP = 512;
+    private static final int ADAPTIVE_PERIODS = 8;
+    private static final double ADAPTIVE_BAND_RATIO = Math.sqrt(2.0);
+    private static final int MIN_ADAPTIVE_WINDOW = 1024;
+    private static final double ONSET_RISE_DB = 3.0;
+    // Onsets compare the samples since the last analysis with as many just before them, never
+    // fewer than this, so a pluck shows even when it is a small part of a long window.
+    private static final int MIN_ONSET_BLOCK = 1024;
+    // Tracking searches lags within this ratio (one semitone) of the locked pitch.
+    private static final double TRACKING_BAND_RATIO = Math.pow(2.0, 1.0 / 12.0);
+    private static final int LOCK_HITS = 3;
+    // Strings span two octaves, so a new string is at most the fourth harmonic of the locked one.
+    private static final int MAX_HARMONIC = 4;
+    // A dip at a fraction of the picked period at most this much shallower than the pick is the note.
+    private static final double SHORTER_PERIOD_SLACK = 1.25;
+    // Single-string mode only searches within this ratio (three semitones) of the chosen string,
+    // which keeps the neighbouring strings (four or five semitones away) and octaves out.
+    private static final double TARGET_BAND_RATIO = Math.pow(2.0, 3.0 / 12.0);
+    // Direct lag loops are split across the worker pool only for windows this large, and only when
+    // each thread gets at least PARALLEL_MIN_LAGS lags; below that the hand-off costs more than it saves.
+    private static final int PARALLEL_MIN_WINDOW = 8192;
+    private static final int PARALLEL_MIN_LAGS = 32;
+
+    private final Listener listener;
+
+    private volatile boolean running;
+    private volatile Thread analysisThread;
+    // Settings handed over by reconfigure, taken by the analysis thread at the next hop boundary.
+    private final AtomicReference<TunerSettings> pendingConfig = new AtomicReference<>();
+    private PcmQueue pcmQueue;
+    private OverloadPolicy overloadPolicy = TunerSettings.DEFAULT_OVERLOAD_POLICY;
+    // Single-writer counters: overruns from the read thread, hop counters from the analysis thread.
+    private volatile long overrunSamples = 0;
+    private volatile long droppedHops = 0;
+    private volatile long lateHops = 0;
+    private int sampleRate = 44100;
+    private int windowSize = 8192;
+    private int hopSize = 2048;
+    // Frames per source read, fixed at start; a live hop change leaves the source reading this many.
+    private int readSize = hopSize;
+    private double noiseFloorDb = -50.0;
+    private double yinThreshold = 0.15;
+    private double noiseEstimateDb = -70.0;
+    private double noiseEstimateAlpha = 0.05;
+    private double noiseMarginDb = 6.0;
+    private PitchTrackerMode pitchTrackerMode = TunerSettings.DEFAULT_PITCH_TRACKER;
+    private PitchTracker pitchTracker = new SmoothingTracker();
+    // Hann tables by log2(size) for the strum check's spectrum.
+    private final double[][] windowTables = new double[31][];
+    private final float[][] floatWindowTables = new float[31][];
+    private double[] diffScratch;
+    private double[] cmndfScratch;
+    private DifferenceMode differenceMode = TunerSettings.DEFAULT_DIFFERENCE_MODE;
+    private final FftDifference[] fftDifferences = new FftDifference[31];
+    // 1 evaluates every lag at the capture rate; 2 or 4 runs the long-lag band decimated.
+    private int decimation = TunerSettings.DEFAULT_DECIMATION;
+    private MultiRateDifference multiRate;
+    private boolean usedMultiRate = false;
+    private int parallelism = TunerSettings.DEFAULT_PARALLELISM;
+    private boolean strumCheck = TunerSettings.DEFAULT_STRUM_CHECK;
+    private StrumAnalyzer strumAnalyzer;
+    private LagWorkerPool lagPool;
+    // Acquisition sweeps the whole lag range; after LOCK_HITS consecutive readings within a
+    // semitone of each other the search is tracking.
+    private boolean trackingSearch = TunerSettings.DEFAULT_TRACKING_SEARCH;
+    private boolean tracking = false;
+    private int lockHits = 0;
+    private double lockFrequency = 0;
+    private double[] samplePrefix;
+    private double[] energyPrefix;
+    private short[] ringBuffer = new short[windowSize];
+    private double[] windowedSamples = new double[windowSize];
+    // Single-precision pipeline: float capture, ring, window and FFT buffers instead of the ones above.
+    private boolean floatPipeline = false;
+    private float[] floatRing;
+    private float[] floatWindowedSamples;
+    private final PitchResult result = new PitchResult();
+    private final StageTimings timings = new StageTimings();
+    private final CaptureStats captureStats = new CaptureStats();
+    // Ring append time of the hop in progress, charged to the hop that gets analysed.
+    private long hopAppendNanos;
+    private int ringWritePos = 0;
+    private boolean lowLatency = TunerSettings.DEFAULT_LOW_LATENCY;
+    // Index into stringFrequencies of the one string being tuned, or -1 for all strings.
+    private int targetString = TunerSettings.DEFAULT_TARGET_STRING;
+    // Newest samples analysed this hop and the longest lag searched in them.
+    private int analysisSize = windowSize;
+    private int analysisMaxLag;
+    private int trackedString = -1;
+    private int hopsSinceAnalysis = 0;
+    private int hopsSinceFullRange = 0;
+    private boolean fullRangeCheck;
+    private int analysisStride = 1;
+    // Whether the last analysed hop had a pitch, and that raw detection.
+    private boolean voiced;
+    private double lastDetection;
+    private int ringFilled = 0;
+    // Running sum of squares over the ring, updated as samples are overwritten. Shorts square to
+    // exact integers so the long total never drifts; the float total is rebuilt periodically.
+    private long ringEnergyInt = 0;
+    private double ringEnergy = 0;
+    private int samplesSinceEnergyResync = 0;
+    private volatile double inputLevelDb = -200;
+    private int pendingSamples = 0;
+    private double[] freqHistory = new double[5];
+    private double[] freqScratch = new double[5];
+    private int freqIndex = 0;
+    private int freqCount = 0;
+    private String[] stringLabels = {"E2", "A2", "D3", "G3", "B3", "E4"};
+    private double[] stringFrequencies = {82.4069, 110.0, 146.832, 195.998, 246.942, 329.628};
+    // Nearest string for window sizing; nearest note for the reading, which is the same mapper
+    // unless chromatic or custom naming is on. Rebuilt only when the notes change.
+    private NoteMapper stringMapper = NoteMapper.tuning(stringLabels, stringFrequencies);
+    private NoteMapper noteMapper = stringMapper;
+    private NoteMode noteMode = TunerSettings.DEFAULT_NOTE_MODE;
+    private double referenceHz = TunerSettings.DEFAULT_REFERENCE_HZ;
+    private String[] customNotes;
+
+    private final AudioSource source;
+    // Runs on the source's thread: only enqueue, never analyse here.
+    private final AudioSource.Sink sink = new AudioSource.Sink() {
+        @Override
+        public void onStreamConfig(int actualSampleRate) {
+            if (actualSampleRate > 0) {
+                sampleRate = actualSampleRate;
+                timings.setBudget(hopSize, actualSampleRate);
+            }
+        }
+
+        @Override
+        public void onAudioApiUsed(boolean isAAudio) {
+            listener.onAudioApiUsed(isAAudio);
+        }
+
+        @Override
+        public void onPcm(short[] samples, int count) {
+            if (running && count > 0) {
+                enqueued(count, pcmQueue.offer(samples, count));
+            }
+        }
+
+        @Override
+        public void onPcm(ShortBuffer samples, int count) {
+            if (running && count > 0) {
+                enqueued(count, pcmQueue.offer(samples, count));
+            }
+        }
+
+        @Override
+        public void onPcm(FloatBuffer samples, int count) {
+            if (running && count > 0) {
+                enqueued(count, pcmQueue.offer(samples, count));
+            }
+        }
+
+        @Override
+        public void onCaptureStats(CaptureStats stats) {
+            captureStats.copyFrom(stats);
+        }
+    };
+
+    TunerEngine(Listener listener, AudioSource source) {
+        this.listener = listener;
+        this.source = source;
+    }
+
+    // Without a source the engine only runs offline, through startOffline and feedOffline.
+    TunerEngine(Listener listener) {
+        this(listener, null);
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        if (source == null) {
+            throw new IllegalStateException("No audio source; use startOffline");
+        }
+        pcmQueue = new PcmQueue(Math.max(windowSize, hopSize * QUEUE_HOPS), floatPipeline);
+        timings.setBudget(hopSize, sampleRate);
+        pendingSamples = 0;
+        overrunSamples = 0;
+        droppedHops = 0;
+        lateHops = 0;
+        captureStats.clear();
+        running = true;
+        analysisThread = new Thread(this::analysisLoop, "TunerAnalysis");
+        analysisThread.start();
+        readSize = hopSize;
+        if (!source.start(sampleRate, readSize, floatPipeline, sink)) {
+            stopAnalysis();
+        }
+    }
+
+    void stop() {
+        if (source != null) {
+            source.stop();
+        }
+        stopAnalysis();
+    }
+
+    // Offline analysis: the caller's thread plays the part of both the audio source and the
+    // analysis thread. Call after applyConfig; samples then go through feedOffline.
+    void startOffline(int sampleRate) {
+        if (running) {
+            return;
+        }
+        this.sampleRate = sampleRate;
+        readSize = hopSize;
+        pcmQueue = new PcmQueue(Math.max(windowSize, hopSize * QUEUE_HOPS), floatPipeline);
+        timings.setBudget(hopSize, sampleRate);
+        pendingSamples = 0;
+        overrunSamples = 0;
+        droppedHops = 0;
+        lateHops = 0;
+        running = true;
+    }
+
+    // Queues at most one hop of samples and analyses it before returning, so no hop is coalesced.
+    void feedOffline(short[] samples, int count) {
+        if (queueOffline(samples, count)) {
+            drainQueue(pcmQueue.available());
+        }
+    }
+
+    // Float samples in [-1, 1); the float pipeline takes them as they are.
+    void feedOffline(float[] samples, int count) {
+        if (queueOffline(samples, count)) {
+            drainQueue(pcmQueue.available());
+        }
+    }
+
+    // Queues at most one hop without analysing it; the ring benchmark then appends it on its own.
+    boolean queueOffline(short[] samples, int count) {
+        if (!checkOfflineFeed(count)) {
+            return false;
+        }
+        pcmQueue.offer(samples, count);
+        return true;
+    }
+
+    boolean queueOffline(float[] samples, int count) {
+        if (!checkOfflineFeed(count)) {
+            return false;
+        }
+        pcmQueue.offer(samples, count);
+        return true;
+    }
+
+    private boolean checkOfflineFeed(int count) {
+        if (!running || count <= 0) {
+            return false;
+        }
+        if (count > hopSize) {
+            throw new IllegalArgumentException("Offline feed exceeds one hop: " + count + " > " + hopSize);
+        }
+        return true;
+    }
+
+    void stopOffline() {
+        running = false;
+    }
+
+    int hopSize() {
+        return hopSize;
+    }
+
+    // Stage timings since the last applyConfig; snapshot from any thread.
+    StageTimings timings() {
+        return timings;
+    }
+
+    // Latest capture health from the audio source; all zero until its first report.
+    CaptureStats captureStats() {
+        return captureStats;
+    }
+
+    long droppedHops() {
+        return droppedHops;
+    }
+
+    long lateHops() {
+        return lateHops;
+    }
+
+    long overrunSamples() {
+        return overrunSamples;
+    }
+
+    // RMS level of the most recent window, refreshed after every read rather than every hop.
+    double inputLevelDb() {
+        return inputLevelDb;
+    }
+
+    private void stopAnalysis() {
+        running = false;
+        Thread thread = analysisThread;
+        analysisThread = null;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        releaseLagPool();
+    }
+
+    private void releaseLagPool() {
+        if (lagPool != null) {
+            lagPool.shutdown();
+            lagPool = null;
+        }
+    }
+
+    private void enqueued(int read, int accepted) {
+        if (accepted < read) {
+            overrunSamples += read - accepted;
+        }
+        Thread thread = analysisThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void analysisLoop() {
+        while (running) {
+            int available = pcmQueue.available();
+            if (available == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            drainQueue(available);
+        }
+    }
+
+    // Appends everything queued to the ring in hop-sized steps. Under backlog only the newest
+    // hops are analysed: one for COALESCE, up to DROP_OLDEST_KEEP_HOPS for DROP_OLDEST. The hops of
+    // a single source read are never backlog, even when a live reconfigure made hops shorter.
+    private void drainQueue(int available) {
+        if (pendingSamples == 0) {
+            applyPendingConfig();
+        }
+        int readyHops = (pendingSamples + available) / hopSize;
+        int keepHops = Math.max(overloadPolicy == OverloadPolicy.COALESCE ? 1 : DROP_OLDEST_KEEP_HOPS,
+                readSize / hopSize);
+        int skipHops = Math.max(0, readyHops - keepHops);
+        int hop = 0;
+        while (available > 0) {
+            if (hop > 0 && pendingConfig.get() != null) {
+                // Hop boundary: the rest is counted in hops of the new config.
+                drainQueue(available);
+                return;
+            }
+            int chunk = Math.min(available, hopSize - pendingSamples);
+            long appendStart = System.nanoTime();
+            appendFromQueue(chunk);
+            hopAppendNanos += System.nanoTime() - appendStart;
+            available -= chunk;
+            pendingSamples += chunk;
+            if (pendingSamples < hopSize) {
+                break;
+            }
+            pendingSamples = 0;
+            hop++;
+            if (ringFilled < windowSize && !lowLatency && targetString < 0) {
+                hopAppendNanos = 0;
+                continue;
+            }
+            if (hop <= skipHops) {
+                droppedHops++;
+                hopAppendNanos = 0;
+                continue;
+            }
+            if (hop < readyHops) {
+                lateHops++;
+            }
+            analyzeHop();
+        }
+        inputLevelDb = computeRmsDb();
+    }
+
+    private void analyzeHop() {
+        long start = System.nanoTime();
+        double amplitudeDb;
+        if (lowLatency || targetString >= 0) {
+            if (!selectAdaptiveWindow()) {
+                hopAppendNanos = 0;
+                return;
+            }
+            amplitudeDb = hopLevelDb();
+            // Keep the noise estimate's time constant that of one update per quarter window.
+            double quarters = analysisStride * hopSize / (windowSize / 4.0);
+            updateNoiseEstimate(amplitudeDb, voiced ? 0 : 1 - Math.pow(1 - noiseEstimateAlpha, quarters));
+        } else {
+            // Once the ring is full it holds exactly one window, so level and pitch read it in place.
+            analysisSize = windowSize;
+            analysisStride = 1;
+            fullRangeCheck = false;
+            analysisMaxLag = (int) (sampleRate / MIN_FREQ);
+            amplitudeDb = hopLevelDb();
+            updateNoiseEstimate(amplitudeDb, voiced ? 0 : noiseEstimateAlpha);
+        }
+        double dynamicThreshold = Math.max(noiseFloorDb, noiseEstimateDb + noiseMarginDb);
+        boolean hasEnergy = amplitudeDb > dynamicThreshold;
+        long levelEnd = System.nanoTime();
+        if (strumCheck) {
+            voiced = false;
+            analyzeStrum(amplitudeDb, hasEnergy);
+            long detectEnd = System.nanoTime();
+            listener.onPitch(result);
+            recordHop(start, levelEnd, detectEnd, detectEnd);
+            return;
+        }
+        boolean onset = levelRiseDb() > ONSET_RISE_DB;
+        if (onset || fullRangeCheck) {
+            // A new pluck may be any string, so the next search is a full sweep.
+            tracking = false;
+        }
+        if (onset) {
+            lockHits = 0;
+        }
+        double frequency = hasEnergy ? detectFrequency() : -1;
+        voiced = frequency > 0;
+        long detectEnd = System.nanoTime();
+        if (lowLatency && targetString < 0) {
+            updateTarget(frequency, onset);
+        }
+        // Two detections in a row away from the locked pitch are a new note, not an outlier: let
+        // the median take them rather than outvote them for two more hops.
+        if (frequency > 0 && lockFrequency > 0 && withinSemitone(frequency, lastDetection)
+                && !withinSemitone(frequency, lockFrequency)) {
+            resetFrequencyHistory();
+        }
+        lastDetection = frequency;
+        double filtered = frequency > 0 ? addFrequencySample(frequency) : 0;
+        if (filtered <= 0) {
+            resetFrequencyHistory();
+        } else if (lockFrequency > 0 && !withinSemitone(filtered, lockFrequency)) {
+            // The note changed: smoothing from the old one would pass through its octaves.
+            pitchTracker.reset();
+        }
+        double reading = pitchTracker.update(Math.max(frequency, 0), filtered, amplitudeDb, dynamicThreshold);
+
+        mapToString(reading, amplitudeDb, reading > 0 && hasEnergy);
+        if (result.stable && !withinSemitone(frequency, reading)) {
+            // The detector already hears something else, so the reading is on its way out.
+            result.stable = false;
+        }
+        updateLock(filtered);
+        long filterEnd = System.nanoTime();
+        listener.onPitch(result);
+        recordHop(start, levelEnd, detectEnd, filterEnd);
+    }
+
+    private void recordHop(long start, long levelEnd, long detectEnd, long filterEnd) {
+        long end = System.nanoTime();
+        timings.record(start, hopAppendNanos, levelEnd - start, detectEnd - levelEnd,
+                filterEnd - detectEnd, end - filterEnd);
+        hopAppendNanos = 0;
+    }
+
+    // Strum check: every string from one spectrum of the full window. The headline reading is the
+    // heard string furthest from its target, the one to fix next; stable means all were heard.
+    private void analyzeStrum(double amplitudeDb, boolean hasEnergy) {
+        int strings = stringFrequencies.length;
+        if (!hasEnergy) {
+            result.set(false, 0, 0, "", amplitudeDb, false);
+            Arrays.fill(result.stringHeard, false);
+            result.strumStrings = strings;
+            return;
+        }
+        if (strumAnalyzer == null || !strumAnalyzer.fits(windowSize, sampleRate, stringFrequencies)) {
+            strumAnalyzer = new StrumAnalyzer(windowSize, sampleRate, stringFrequencies);
+        }
+        if (floatPipeline) {
+            applyWindow(floatWindowedSamples, windowSize);
+            strumAnalyzer.analyze(floatWindowedSamples, result.stringHeard, result.stringFrequencyHz, result.stringCents);
+        } else {
+            applyWindow(windowedSamples, windowSize);
+            strumAnalyzer.analyze(windowedSamples, result.stringHeard, result.stringFrequencyHz, result.stringCents);
+        }
+        int heard = 0;
+        int worst = -1;
+        for (int i = 0; i < strings; i++) {
+            if (!result.stringHeard[i]) {
+                continue;
+            }
+            heard++;
+            if (worst < 0 || Math.abs(result.stringCents[i]) > Math.abs(result.stringCents[worst])) {
+                worst = i;
+            }
+        }
+        if (worst < 0) {
+            result.set(false, 0, 0, "", amplitudeDb, false);
+        } else {
+            result.set(true, result.stringFrequencyHz[worst], result.stringCents[worst],
+                    stringLabels[worst], amplitudeDb, heard == strings);
+        }
+        result.strumStrings = strings;
+    }
+
+    // Low-latency mode: with no string tracked, acquire with a window sized for the lowest string;
+    // once tracking, analyse only what that string needs, and once per acquisition stride check
+    // the tracked string against a full-range sweep. Single-string mode always sizes for the
+    // chosen string. All keep the full window's 75% overlap, so short windows are analysed every
+    // hop and long ones every few. Returns false to skip a hop.
+    private boolean selectAdaptiveWindow() {
+        double target;
+        int maxLag;
+        int acquisitionLag = (int) (sampleRate / MIN_FREQ);
+        int acquisitionSize = adaptiveWindowSize(lowestStringFrequency(), acquisitionLag);
+        hopsSinceAnalysis++;
+        hopsSinceFullRange++;
+        fullRangeCheck = targetString < 0 && trackedString >= 0
+                && hopsSinceFullRange >= Math.max(1, acquisitionSize / 4 / hopSize);
+        if (targetString >= 0) {
+            target = stringFrequencies[targetString];
+            maxLag = (int) Math.ceil(sampleRate * TARGET_BAND_RATIO / target);
+        } else if (trackedString >= 0 && !fullRangeCheck) {
+            target = stringFrequencies[trackedString];
+            maxLag = adaptiveMaxLag(target);
+        } else {
+            target = lowestStringFrequency();
+            maxLag = acquisitionLag;
+        }
+        int size = adaptiveWindowSize(target, maxLag);
+        // The check is due on its own schedule, whatever the tracked string's stride.
+        if (ringFilled < size || (!fullRangeCheck && hopsSinceAnalysis < Math.max(1, size / 4 / hopSize))) {
+            return false;
+        }
+        if (size == acquisitionSize) {
+            hopsSinceFullRange = 0;
+        }
+        analysisStride = hopsSinceAnalysis;
+        hopsSinceAnalysis = 0;
+        analysisSize = size;
+        analysisMaxLag = Math.min(maxLag, size / 2);
+        return true;
+    }
+
+    private int adaptiveMaxLag(double frequency) {
+        int fullMaxLag = (int) (sampleRate / MIN_FREQ);
+        return Math.min(fullMaxLag, (int) Math.ceil(sampleRate * ADAPTIVE_BAND_RATIO / frequency));
+    }
+
+    private int adaptiveWindowSize(double frequency, int maxLag) {
+        int needed = maxLag + (int) (ADAPTIVE_PERIODS * sampleRate / frequency);
+        return Math.min(windowSize, Math.max(MIN_ADAPTIVE_WINDOW, RealFft.nextPowerOfTwo(needed)));
+    }
+
+    private double lowestStringFrequency() {
+        double lowest = Double.MAX_VALUE;
+        for (double frequency : stringFrequencies) {
+            lowest = Math.min(lowest, frequency);
+        }
+        return lowest;
+    }
+
+    // A new pluck may be a different string, and a detection off the tracked string (or a
+    // full-range check that disagrees with it) means the short window may be reading a harmonic:
+    // either way drop back to acquisition.
+    private void updateTarget(double frequency, boolean onset) {
+        int nearest = frequency > 0 ? nearestString(frequency) : -1;
+        if (onset || nearest < 0 || (trackedString >= 0 && nearest != trackedString)) {
+            trackedString = -1;
+        } else {
+            if (trackedString < 0 && lockFrequency > 0 && nearestString(lockFrequency) != nearest) {
+                // Acquisition found another string: start the reading there rather than smooth
+                // across the interval, whose midpoints read as octave errors of either string.
+                resetFrequencyHistory();
+                pitchTracker.reset();
+            }
+            trackedString = nearest;
+        }
+    }
+
+    // Level stage: the whole ring from its running energy, or an adaptive window scanned directly.
+    double hopLevelDb() {
+        return analysisSize == windowSize ? computeRmsDb() : recentRmsDb(analysisSize);
+    }
+
+    // Level of the newest `size` samples; short windows are cheap enough to scan directly.
+    private double recentRmsDb(int size) {
+        double rms = Math.sqrt(recentEnergy(size, 0) / size);
+        return 20 * Math.log10(rms + 1e-10);
+    }
+
+    // Rise in dB of the samples that arrived since the last analysis over as many just before
+    // them; 0 until the ring holds both.
+    private double levelRiseDb() {
+        int block = Math.max(MIN_ONSET_BLOCK, analysisStride * hopSize);
+        if (ringFilled < 2 * block) {
+            return 0;
+        }
+        double newer = recentEnergy(block, 0);
+        double older = recentEnergy(block, block);
+        return 10 * Math.log10((newer + 1e-12) / (older + 1e-12));
+    }
+
+    // Sum of squares of `size` ring samples ending `skip` samples before the newest one.
+    private double recentEnergy(int size, int skip) {
+        int start = ((ringWritePos - skip - size) % windowSize + windowSize) % windowSize;
+        int firstLength = Math.min(size, windowSize - start);
+        if (floatPipeline) {
+            return sumSquares(floatRing, start, firstLength) + sumSquares(floatRing, 0, size - firstLength);
+        }
+        long total = sumSquares(ringBuffer, start, firstLength) + sumSquares(ringBuffer, 0, size - firstLength);
+        return total / (32768.0 * 32768.0);
+    }
+
+    // Level of the current ring contents from the running energy, O(1) instead of a window scan.
+    // Until the ring is full (at start or after a larger window) only ringFilled samples are valid.
+    private double computeRmsDb() {
+        double sum = floatPipeline ? ringEnergy : ringEnergyInt / (32768.0 * 32768.0);
+        double rms = Math.sqrt(Math.max(0, sum) / Math.max(1, ringFilled));
+        return 20 * Math.log10(rms + 1e-10);
+    }
+
+    // Core pitch detection: copy the newest samples, run autocorrelation, then parabolic interpolate.
+    double detectFrequency() {
+        int minLag = (int) (sampleRate / MAX_FREQ);
+        int maxLag = analysisMaxLag;
+        if (diffScratch == null || diffScratch.length < maxLag + 1) {
+            diffScratch = new double[maxLag + 1];
+            cmndfScratch = new double[maxLag + 1];
+        }
+
+        if (targetString >= 0) {
+            return detectTargeted(minLag, maxLag);
+        }
+        if (tracking) {
+            double tracked = detectTracked(minLag, maxLag);
+            if (tracked > 0) {
+                return tracked;
+            }
+            // Lost lock: the pitch left the band or jumped an octave, so sweep everything this hop.
+            tracking = false;
+        }
+
+        computeDifference(minLag, maxLag);
+
+        computeCmndf(minLag, maxLag);
+
+        int bestLag = -1;
+        double bestValue = Double.MAX_VALUE;
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double value = cmndfScratch[lag];
+            if (value < yinThreshold) {
+                bestLag = dipBottom(lag, maxLag);
+                break;
+            }
+            if (value < bestValue) {
+                bestValue = value;
+                bestLag = lag;
+            }
+        }
+
+        if (bestLag <= 0) {
+            return -1;
+        }
+        bestLag = shortestPeriod(bestLag, minLag);
+        bestValue = cmndfScratch[bestLag];
+        // Accept on the value the pick was made on: the decimated band has had the noise above its
+        // cutoff filtered out, which the full-rate value below still carries.
+        double pickValue = bestValue;
+        // The parabola below also reads bestLag + 1, which must not be an interpolated value.
+        if (usedMultiRate && bestLag + 1 > multiRate.splitLag()) {
+            bestLag = refineLag(bestLag, multiRate.refineRadius(), minLag, maxLag);
+            bestValue = cmndfScratch[bestLag];
+        } else if (!usedMultiRate && floatPipeline && differenceMode == DifferenceMode.FFT) {
+            refineLag(bestLag, 0, minLag, maxLag);
+            bestValue = cmndfScratch[bestLag];
+        }
+
+        double left = bestLag > minLag ? cmndfScratch[bestLag - 1] : bestValue;
+        double right = bestLag + 1 <= maxLag ? cmndfScratch[bestLag + 1] : bestValue;
+        double shift = parabolicShift(left, bestValue, right);
+        double refined = bestLag + shift;
+        double maxAccept = Math.min(0.5, yinThreshold * 2.0);
+        if (pickValue > maxAccept) {
+            return -1;
+        }
+        if (refined <= 0) {
+            return -1;
+        }
+        return sampleRate / refined;
+    }
+
+    private void updateLock(double filtered) {
+        if (filtered <= 0) {
+            lockHits = 0;
+        } else if (lockFrequency > 0 && filtered < lockFrequency * TRACKING_BAND_RATIO
+                && filtered > lockFrequency / TRACKING_BAND_RATIO) {
+            lockHits++;
+        } else {
+            lockHits = 1;
+        }
+        lockFrequency = filtered;
+        tracking = trackingSearch && lockHits >= LOCK_HITS;
+    }
+
+    // Tracking search: exact d(τ) only for lags within a semitone of the locked pitch, with the
+    // threshold pick matching a full sweep. Returns -1 when the pick is not inside the band or a
+    // dip at a harmonic of it would have won, which sends the caller back to a full sweep.
+    private double detectTracked(int minLag, int maxLag) {
+        // Centre on the median-filtered reading; the smoothed one lags behind a retuned string.
+        double center = sampleRate / lockFrequency;
+        int from = Math.max(minLag + 1, (int) Math.floor(center / TRACKING_BAND_RATIO) - 1);
+        int to = Math.min(maxLag, (int) Math.ceil(center * TRACKING_BAND_RATIO) + 1);
+        int bestLag = searchBand(minLag, from, to, true);
+        if (bestLag < 0 || harmonicWins(center, minLag, analysisSize)) {
+            return -1;
+        }
+        return interpolatedFrequency(bestLag);
+    }
+
+    // Single-string mode: the band around the chosen string is a hard limit, so a dip outside it
+    // (a neighbouring string, an octave) can never be reported.
+    private double detectTargeted(int minLag, int maxLag) {
+        double target = stringFrequencies[targetString];
+        int from = Math.max(minLag + 1, (int) Math.floor(sampleRate / (target * TARGET_BAND_RATIO)));
+        int bestLag = searchBand(minLag, from, maxLag, false);
+        return bestLag < 0 ? -1 : interpolatedFrequency(bestLag);
+    }
+
+    // Evaluates d(τ) and CMNDF exactly for lags [from, to] and returns the YIN pick strictly inside
+    // that range, or -1. CMNDF needs the sum of d over every lag below the band too; that comes from
+    // prefix sums in one pass. With walkDown, a dip that is already under the threshold at the
+    // lower edge is followed down to where a full sweep would cross it.
+    private int searchBand(int minLag, int from, int to, boolean walkDown) {
+        if (to - from < 2) {
+            return -1;
+        }
+        int size = analysisSize;
+        loadFrame();
+        if (floatPipeline) {
+            prepareTrackingSums(floatWindowedSamples, size);
+        } else {
+            prepareTrackingSums(windowedSamples, size);
+        }
+
+        double below = cumulativeDifference(minLag + 1, from - 1, size);
+        double runningSum = below;
+        if (floatPipeline) {
+            computeDifferenceDirect(floatWindowedSamples, size, from, to);
+        } else {
+            computeDifferenceDirect(windowedSamples, size, from, to);
+        }
+        for (int lag = from; lag <= to; lag++) {
+            double d = diffScratch[lag];
+            runningSum += d;
+            cmndfScratch[lag] = runningSum == 0 ? 1 : d * lag / runningSum;
+        }
+        while (walkDown && cmndfScratch[from] < yinThreshold) {
+            if (from - 1 <= minLag) {
+                return -1;
+            }
+            from--;
+            double d = trackedDifference(size, from);
+            diffScratch[from] = d;
+            cmndfScratch[from] = below == 0 ? 1 : d * from / below;
+            below -= d;
+        }
+        int bestLag = -1;
+        double bestValue = Double.MAX_VALUE;
+        for (int lag = from + 1; lag < to; lag++) {
+            double value = cmndfScratch[lag];
+            if (value < yinThreshold) {
+                bestLag = dipBottom(lag, to - 1);
+                bestValue = cmndfScratch[bestLag];
+                break;
+            }
+            if (value < bestValue) {
+                bestValue = value;
+                bestLag = lag;
+            }
+        }
+        double maxAccept = Math.min(0.5, yinThreshold * 2.0);
+        if (bestValue > maxAccept || bestLag == from + 1 && cmndfScratch[from] < bestValue
+                || bestLag == to - 1 && cmndfScratch[to] < bestValue) {
+            return -1;
+        }
+        return bestLag;
+    }
+
+    private double interpolatedFrequency(int bestLag) {
+        double shift = parabolicShift(cmndfScratch[bestLag - 1], cmndfScratch[bestLag],
+                cmndfScratch[bestLag + 1]);
+        return sampleRate / (bestLag + shift);
+    }
+
+    // A full sweep stops at the first dip under the threshold, so it would report a new string
+    // that is a harmonic of the locked one (an octave, B3 after E2) before reaching the band. Looks
+    // for such a dip within a semitone of period/k for every harmonic a string change can land on.
+    private boolean harmonicWins(double period, int minLag, int size) {
+        for (int k = 2; k <= MAX_HARMONIC; k++) {
+            int from = Math.max(minLag + 1, (int) Math.floor(period / k / TRACKING_BAND_RATIO));
+            int to = (int) Math.ceil(period / k * TRACKING_BAND_RATIO);
+            if (to < from) {
+                break;
+            }
+            double runningSum = cumulativeDifference(minLag + 1, from - 1, size);
+            for (int lag = from; lag <= to; lag++) {
+                double d = trackedDifference(size, lag);
+                runningSum += d;
+                if (runningSum > 0 && d * lag / runningSum < yinThreshold) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void prepareTrackingSums(double[] samples, int size) {
+        ensureTrackingSums();
+        for (int i = 0; i < size; i++) {
+            double x = samples[i];
+            samplePrefix[i + 1] = samplePrefix[i] + x;
+            energyPrefix[i + 1] = energyPrefix[i] + x * x;
+        }
+    }
+
+    private void prepareTrackingSums(float[] samples, int size) {
+        ensureTrackingSums();
+        for (int i = 0; i < size; i++) {
+            double x = samples[i];
+            samplePrefix[i + 1] = samplePrefix[i] + x;
+            energyPrefix[i + 1] = energyPrefix[i] + x * x;
+        }
+    }
+
+    private void ensureTrackingSums() {
+        if (samplePrefix == null || samplePrefix.length < windowSize + 1) {
+            samplePrefix = new double[windowSize + 1];
+            energyPrefix = new double[windowSize + 1];
+        }
+    }
+
+    private double trackedDifference(int size, int lag) {
+        return floatPipeline
+                ? MultiRateDifference.directDifference(floatWindowedSamples, size, lag)
+                : MultiRateDifference.directDifference(windowedSamples, size, lag);
+    }
+
+    // Σ d(τ) for τ in [a, b]: d(τ) = E[0, W-τ) + E[τ, W) - 2·r(τ), and Σ r(τ) over the range is
+    // Σ x[i]·(x[i+a] + … + x[i+b]), one prefix-sum lookup per sample.
+    private double cumulativeDifference(int a, int b, int size) {
+        if (b < a) {
+            return 0;
+        }
+        double total = energyPrefix[size];
+        double energyTerms = 0;
+        for (int lag = a; lag <= b; lag++) {
+            energyTerms += energyPrefix[size - lag] + total - energyPrefix[lag];
+        }
+        double correlation = 0;
+        for (int i = 0, limit = size - a; i < limit; i++) {
+            int end = Math.min(i + b, size - 1) + 1;
+            double x = floatPipeline ? floatWindowedSamples[i] : windowedSamples[i];
+            correlation += x * (samplePrefix[end] - samplePrefix[i + a]);
+        }
+        return energyTerms - 2 * correlation;
+    }
+
+    private void computeCmndf(int minLag, int maxLag) {
+        cmndfScratch[minLag] = 1;
+        double runningSum = 0;
+        for (int lag = minLag + 1; lag <= maxLag; lag++) {
+            runningSum += diffScratch[lag];
+            if (runningSum == 0) {
+                cmndfScratch[lag] = 1;
+            } else {
+                cmndfScratch[lag] = diffScratch[lag] * lag / runningSum;
+            }
+        }
+    }
+
+    // A float FFT leaves roughly 1e-6 of the window energy as noise in d(τ), and the decimated
+    // band is only interpolated between coarse lags; either is enough to bend the parabola.
+    // Recompute lags around the candidate exactly at full rate and repeat the threshold pick
+    // inside that neighbourhood so interpolation keeps full accuracy.
+    private int refineLag(int bestLag, int radius, int minLag, int maxLag) {
+        int from = Math.max(minLag, bestLag - radius - 1);
+        int to = Math.min(maxLag, bestLag + radius + 1);
+        for (int lag = from; lag <= to; lag++) {
+            diffScratch[lag] = floatPipeline
+                    ? MultiRateDifference.directDifference(floatWindowedSamples, analysisSize, lag)
+                    : MultiRateDifference.directDifference(windowedSamples, analysisSize, lag);
+        }
+        computeCmndf(minLag, to);
+        if (radius == 0) {
+            return bestLag;
+        }
+        int refined = bestLag;
+        double refinedValue = Double.MAX_VALUE;
+        for (int lag = Math.max(minLag, bestLag - radius); lag <= Math.min(maxLag, bestLag + radius); lag++) {
+            double value = cmndfScratch[lag];
+            if (value < yinThreshold) {
+                return dipBottom(lag, Math.min(maxLag, bestLag + radius));
+            }
+            if (value < refinedValue) {
+                refinedValue = value;
+                refined = lag;
+            }
+        }
+        return refined;
+    }
+
+    private void computeDifference(int minLag, int maxLag) {
+        int size = analysisSize;
+        boolean useFft = differenceMode == DifferenceMode.FFT;
+        // The decimated band only pays off for a full-range sweep; narrowed searches stay at full rate.
+        if (decimation > 1 && maxLag == (int) (sampleRate / MIN_FREQ)) {
+            if (multiRate == null || !multiRate.fits(size, maxLag, decimation, useFft)) {
+                multiRate = new MultiRateDifference(size, minLag, maxLag, decimation, useFft);
+            }
+            loadFrame();
+            if (floatPipeline) {
+                multiRate.compute(floatWindowedSamples, size, minLag, maxLag, diffScratch);
+            } else {
+                multiRate.compute(windowedSamples, size, minLag, maxLag, diffScratch);
+            }
+            usedMultiRate = true;
+            return;
+        }
+        usedMultiRate = false;
+        loadFrame();
+        if (floatPipeline) {
+            if (useFft) {
+                fftDifference(size).compute(floatWindowedSamples, size, minLag, maxLag, diffScratch);
+            } else {
+                computeDifferenceDirect(floatWindowedSamples, size, minLag, maxLag);
+            }
+        } else {
+            if (useFft) {
+                fftDifference(size).compute(windowedSamples, size, minLag, maxLag, diffScratch);
+            } else {
+                computeDifferenceDirect(windowedSamples, size, minLag, maxLag);
+            }
+        }
+    }
+
+    // One instance per window size, each able to serve any lag up to the full-range maximum.
+    private FftDifference fftDifference(int size) {
+        int fullMaxLag = (int) (sampleRate / MIN_FREQ);
+        int slot = Integer.numberOfTrailingZeros(size);
+        FftDifference difference = fftDifferences[slot];
+        if (difference == null || !difference.fits(size, fullMaxLag, floatPipeline)) {
+            difference = new FftDifference(size, fullMaxLag, floatPipeline);
+            fftDifferences[slot] = difference;
+        }
+        return difference;
+    }
+
+    private void computeDifferenceDirect(float[] samples, int windowedSize, int minLag, int maxLag) {
+        LagWorkerPool pool = lagPoolFor(windowedSize, maxLag - minLag + 1);
+        if (pool != null) {
+            pool.compute(samples, windowedSize, minLag, maxLag, diffScratch);
+            return;
+        }
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            diffScratch[lag] = MultiRateDifference.directDifference(samples, windowedSize, lag);
+        }
+    }
+
+    private void computeDifferenceDirect(double[] samples, int windowedSize, int minLag, int maxLag) {
+        LagWorkerPool pool = lagPoolFor(windowedSize, maxLag - minLag + 1);
+        if (pool != null) {
+            pool.compute(samples, windowedSize, minLag, maxLag, diffScratch);
+            return;
+        }
+        for (int lag = minLag; lag <= maxLag; lag++) {
+            double sum = 0;
+            int limit = windowedSize - lag;
+            for (int i = 0; i < limit; i++) {
+                double delta = samples[i] - samples[i + lag];
+                sum += delta * delta;
+            }
+            diffScratch[lag] = sum;
+        }
+    }
+
+    // Started on first use from the analysis thread and kept until the engine stops or reconfigures.
+    private LagWorkerPool lagPoolFor(int windowedSize, int lagCount) {
+        if (parallelism <= 1 || windowedSize < PARALLEL_MIN_WINDOW
+                || lagCount < parallelism * PARALLEL_MIN_LAGS) {
+            return null;
+        }
+        if (lagPool == null) {
+            lagPool = new LagWorkerPool(parallelism);
+        }
+        return lagPool;
+    }
+
+    private double parabolicShift(double left, double center, double right) {
+        double denominator = (left - 2 * center + right);
+        if (denominator == 0) return 0;
+        return 0.5 * (left - right) / denominator;
+    }
+
+    private void mapToString(double freq, double amplitudeDb, boolean hasSignal) {
+        if (!hasSignal || freq <= 0) {
+            result.set(false, 0, 0, "", amplitudeDb, false);
+            return;
+        }
+
+        double cents;
+        String label;
+        if (targetString >= 0) {
+            cents = 1200 * log2(freq / stringFrequencies[targetString]);
+            label = stringLabels[targetString];
+        } else {
+            noteMapper.map(freq);
+            cents = noteMapper.cents;
+            label = noteMapper.label;
+        }
+        boolean stable = pitchTracker.stable(cents);
+
+        result.set(true, freq, cents, label, amplitudeDb, stable);
+    }
+
+    // Noise fills in the dip at the true period before those at its multiples, so a pick can land
+    // on an octave below the note. A dip at bestLag/k that is acceptable, or nearly as deep as the
+    // pick, is the note instead.
+    private int shortestPeriod(int bestLag, int minLag) {
+        double accept = Math.max(Math.min(0.5, yinThreshold * 2.0),
+                cmndfScratch[bestLag] * SHORTER_PERIOD_SLACK);
+        for (int k = MAX_HARMONIC; k >= 2; k--) {
+            double center = bestLag / (double) k;
+            int from = Math.max(minLag + 1, (int) Math.floor(center / TRACKING_BAND_RATIO));
+            int to = (int) Math.ceil(center * TRACKING_BAND_RATIO);
+            int lag = -1;
+            for (int i = from; i <= to; i++) {
+                if (lag < 0 || cmndfScratch[i] < cmndfScratch[lag]) {
+                    lag = i;
+                }
+            }
+            if (lag > from && lag < to && cmndfScratch[lag] < accept) {
+                return lag;
+            }
+        }
+        return bestLag;
+    }
+
+    // YIN's pick is the bottom of the first dip under the threshold, not the lag where it crosses:
+    // on the dip's slope the parabola extrapolates, up to tens of cents flat on long periods.
+    private int dipBottom(int lag, int limit) {
+        while (lag < limit && cmndfScratch[lag + 1] < cmndfScratch[lag]) {
+            lag++;
+        }
+        return lag;
+    }
+
+    private static boolean withinSemitone(double a, double b) {
+        return a < b * TRACKING_BAND_RATIO && a > b / TRACKING_BAND_RATIO;
+    }
+
+    private int nearestString(double freq) {
+        return stringMapper.map(freq);
+    }
+
+    private double log2(double value) {
+        return Math.log(value) / Math.log(2.0);
+    }
+
+    // Per-engine slots in front of the shared cache, so the per-hop lookup takes no lock.
+    private double[] windowTable(int size) {
+        int slot = Integer.numberOfTrailingZeros(size);
+        double[] table = windowTables[slot];
+        if (table == null) {
+            table = DspTables.hann(size);
+            windowTables[slot] = table;
+        }
+        return table;
+    }
+
+    private float[] floatWindowTable(int size) {
+        int slot = Integer.numberOfTrailingZeros(size);
+        float[] table = floatWindowTables[slot];
+        if (table == null) {
+            table = DspTables.hannFloat(size);
+            floatWindowTables[slot] = table;
+        }
+        return table;
+    }
+
+    private void updateNoiseEstimate(double amplitudeDb, double alpha) {
+        if (amplitudeDb < noiseEstimateDb) {
+            noiseEstimateDb = amplitudeDb;
+        } else {
+            noiseEstimateDb += alpha * (amplitudeDb - noiseEstimateDb);
+        }
+        if (noiseEstimateDb > -20) {
+            noiseEstimateDb = -20;
+        }
+    }
+
+    /**
+     * Applies settings to a running engine without stopping the source: the analysis thread picks
+     * them up at the next hop boundary, keeping the ring and the reading history. Only a change of
+     * sample precision reopens the source. A stopped engine is simply configured.
+     */
+    void reconfigure(TunerSettings settings) {
+        if (!running) {
+            applyConfig(settings);
+        } else if (settings.floatPipeline != floatPipeline) {
+            stop();
+            applyConfig(settings);
+            start();
+        } else {
+            pendingConfig.set(settings);
+        }
+    }
+
+    void applyConfig(TunerSettings settings) {
+        pendingConfig.set(null);
+        setParameters(settings);
+        releaseLagPool();
+        diffScratch = null;
+        cmndfScratch = null;
+        Arrays.fill(fftDifferences, null);
+        multiRate = null;
+        strumAnalyzer = null;
+        if (floatPipeline) {
+            floatRing = new float[windowSize];
+            floatWindowedSamples = new float[windowSize];
+            ringBuffer = null;
+            windowedSamples = null;
+        } else {
+            ringBuffer = new short[windowSize];
+            windowedSamples = new double[windowSize];
+            floatRing = null;
+            floatWindowedSamples = null;
+        }
+        ringWritePos = 0;
+        ringFilled = 0;
+        ringEnergyInt = 0;
+        ringEnergy = 0;
+        samplesSinceEnergyResync = 0;
+        pendingSamples = 0;
+        freqHistory = new double[5];
+        freqScratch = new double[5];
+        freqIndex = 0;
+        freqCount = 0;
+        noiseEstimateDb = noiseFloorDb - 20.0;
+        pitchTracker.reset();
+        resetStringTracking();
+        hopAppendNanos = 0;
+        timings.reset();
+    }
+
+    // Analysis thread, between hops. Scalars switch over directly; the ring is only rebuilt when the
+    // window size changed, and the readings carry on unless the strings or the search mode changed.
+    private void applyPendingConfig() {
+        TunerSettings settings = pendingConfig.getAndSet(null);
+        if (settings == null) {
+            return;
+        }
+        int oldWindowSize = windowSize;
+        int oldHopSize = hopSize;
+        int oldParallelism = parallelism;
+        double[] oldFrequencies = stringFrequencies;
+        int oldTargetString = targetString;
+        boolean oldLowLatency = lowLatency;
+        boolean oldStrumCheck = strumCheck;
+        setParameters(settings);
+        if (parallelism != oldParallelism) {
+            releaseLagPool();
+        }
+        if (windowSize != oldWindowSize) {
+            resizeRing(oldWindowSize);
+        }
+        if (!Arrays.equals(stringFrequencies, oldFrequencies) || targetString != oldTargetString
+                || lowLatency != oldLowLatency || strumCheck != oldStrumCheck) {
+            resetStringTracking();
+        }
+        tracking = tracking && trackingSearch;
+        if (hopSize != oldHopSize) {
+            timings.setBudget(hopSize, sampleRate);
+        }
+    }
+
+    private void setParameters(TunerSettings settings) {
+        windowSize = settings.windowSize;
+        // Strum check and single-string mode are about the six strings; other naming turns them off.
+        boolean stringNaming = settings.noteMode == NoteMode.STRINGS;
+        strumCheck = settings.strumCheck && stringNaming;
+        // Strum check always reads the whole window for every string.
+        lowLatency = settings.lowLatency && !strumCheck;
+        trackingSearch = settings.trackingSearch;
+        targetString = strumCheck || !stringNaming ? -1 : settings.targetString;
+        hopSize = lowLatency ? Math.min(LOW_LATENCY_HOP, windowSize / 4) : Math.max(256, windowSize / 4);
+        noiseFloorDb = settings.noiseFloorDb;
+        yinThreshold = settings.yinThreshold;
+        updateNoteMappers(settings);
+        differenceMode = settings.differenceMode;
+        floatPipeline = settings.floatPipeline;
+        overloadPolicy = settings.overloadPolicy;
+        decimation = settings.decimation;
+        parallelism = Math.min(settings.parallelism, Runtime.getRuntime().availableProcessors());
+        // A new model starts from scratch; otherwise the running reading carries on.
+        if (settings.pitchTracker != pitchTrackerMode) {
+            pitchTrackerMode = settings.pitchTracker;
+            pitchTracker = pitchTrackerMode == PitchTrackerMode.KALMAN
+                    ? new KalmanTracker() : new SmoothingTracker();
+        }
+        pitchTracker.configure(settings.smoothingAlpha);
+    }
+
+    private void updateNoteMappers(TunerSettings settings) {
+        if (!Arrays.equals(settings.stringFrequencies, stringFrequencies)
+                || !Arrays.equals(settings.stringNotes, stringLabels)) {
+            stringLabels = settings.stringNotes;
+            stringFrequencies = settings.stringFrequencies;
+            stringMapper = NoteMapper.tuning(stringLabels, stringFrequencies);
+            noteMapper = null;
+        }
+        if (noteMapper == null || settings.noteMode != noteMode || settings.referenceHz != referenceHz
+                || (settings.noteMode == NoteMode.CUSTOM && !Arrays.equals(settings.customNotes, customNotes))) {
+            noteMode = settings.noteMode;
+            referenceHz = settings.referenceHz;
+            customNotes = settings.customNotes;
+            if (noteMode == NoteMode.CHROMATIC) {
+                noteMapper = NoteMapper.chromatic(referenceHz);
+            } else if (noteMode == NoteMode.CUSTOM) {
+                noteMapper = NoteMapper.tuning(customNotes, settings.customFrequencies);
+            } else {
+                noteMapper = stringMapper;
+            }
+        }
+    }
+
+    private void resetStringTracking() {
+        trackedString = -1;
+        tracking = false;
+        lockHits = 0;
+        lockFrequency = 0;
+        hopsSinceAnalysis = 0;
+        hopsSinceFullRange = 0;
+    }
+
+    // Moves the newest samples into a ring of the current windowSize, oldest first, so a smaller
+    // window is analysed straight away and a larger one only waits for the samples it lacks.
+    private void resizeRing(int oldSize) {
+        int keep = Math.min(ringFilled, windowSize);
+        int start = (ringWritePos - keep + oldSize) % oldSize;
+        int first = Math.min(keep, oldSize - start);
+        if (floatPipeline) {
+            float[] ring = new float[windowSize];
+            System.arraycopy(floatRing, start, ring, 0, first);
+            System.arraycopy(floatRing, 0, ring, first, keep - first);
+            floatRing = ring;
+            floatWindowedSamples = new float[windowSize];
+            ringEnergy = sumSquares(floatRing, 0, keep);
+            samplesSinceEnergyResync = 0;
+        } else {
+            short[] ring = new short[windowSize];
+            System.arraycopy(ringBuffer, start, ring, 0, first);
+            System.arraycopy(ringBuffer, 0, ring, first, keep - first);
+            ringBuffer = ring;
+            windowedSamples = new double[windowSize];
+            ringEnergyInt = sumSquares(ringBuffer, 0, keep);
+        }
+        ringWritePos = keep % windowSize;
+        ringFilled = keep;
+        hopsSinceAnalysis = 0;
+    }
+
+    // Ring stage: moves queued samples into the ring and its running energy. This and the other
+    // stages (hopLevelDb, loadFrame, detectFrequency, addFrequencySample) are package-private so
+    // :tuner-bench can time each one alone on the code the hop itself runs.
+    void appendFromQueue(int count) {
+        int remaining = count;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, windowSize - ringWritePos);
+            if (floatPipeline) {
+                ringEnergy -= sumSquares(floatRing, ringWritePos, chunk);
+                pcmQueue.poll(floatRing, ringWritePos, chunk);
+                ringEnergy += sumSquares(floatRing, ringWritePos, chunk);
+            } else {
+                ringEnergyInt -= sumSquares(ringBuffer, ringWritePos, chunk);
+                pcmQueue.poll(ringBuffer, ringWritePos, chunk);
+                ringEnergyInt += sumSquares(ringBuffer, ringWritePos, chunk);
+            }
+            remaining -= chunk;
+            ringWritePos += chunk;
+            if (ringWritePos == windowSize) {
+                ringWritePos = 0;
+            }
+            ringFilled = Math.min(windowSize, ringFilled + chunk);
+        }
+        samplesSinceEnergyResync += count;
+        if (floatPipeline && samplesSinceEnergyResync >= windowSize * ENERGY_RESYNC_WINDOWS) {
+            samplesSinceEnergyResync = 0;
+            ringEnergy = sumSquares(floatRing, 0, windowSize);
+        }
+    }
+
+    private static long sumSquares(short[] data, int from, int count) {
+        long sum = 0;
+        for (int i = from, end = from + count; i < end; i++) {
+            sum += data[i] * data[i];
+        }
+        return sum;
+    }
+
+    private static double sumSquares(float[] data, int from, int count) {
+        double sum = 0;
+        for (int i = from, end = from + count; i < end; i++) {
+            float v = data[i];
+            sum += v * v;
+        }
+        return sum;
+    }
+
+    // Windows the newest `size` samples, reading the two ring segments without unrolling them first.
+    private void applyWindow(double[] out, int size) {
+        double[] coefficients = windowTable(size);
+        int start = (ringWritePos - size + windowSize) % windowSize;
+        int firstLength = Math.min(size, windowSize - start);
+        for (int i = 0; i < firstLength; i++) {
+            out[i] = ringBuffer[start + i] * coefficients[i];
+        }
+        for (int i = firstLength; i < size; i++) {
+            out[i] = ringBuffer[i - firstLength] * coefficients[i];
+        }
+    }
+
+    private void applyWindow(float[] out, int size) {
+        float[] coefficients = floatWindowTable(size);
+        int start = (ringWritePos - size + windowSize) % windowSize;
+        int firstLength = Math.min(size, windowSize - start);
+        for (int i = 0; i < firstLength; i++) {
+            out[i] = floatRing[start + i] * coefficients[i];
+        }
+        for (int i = firstLength; i < size; i++) {
+            out[i] = floatRing[i - firstLength] * coefficients[i];
+        }
+    }
+
+    // Frame stage: the newest analysisSize samples into the detector's input.
+    void loadFrame() {
+        if (floatPipeline) {
+            copyFrame(floatWindowedSamples, analysisSize);
+        } else {
+            copyFrame(windowedSamples, analysisSize);
+        }
+    }
+
+    // Pitch reads the newest `size` samples untapered: a taper shifts short windows' dips by up to
+    // ten cents and can hide the lowest string at 2048, while a periodic signal needs none.
+    private void copyFrame(double[] out, int size) {
+        int start = (ringWritePos - size + windowSize) % windowSize;
+        int firstLength = Math.min(size, windowSize - start);
+        for (int i = 0; i < firstLength; i++) {
+            out[i] = ringBuffer[start + i];
+        }
+        for (int i = firstLength; i < size; i++) {
+            out[i] = ringBuffer[i - firstLength];
+        }
+    }
+
+    private void copyFrame(float[] out, int size) {
+        int start = (ringWritePos - size + windowSize) % windowSize;
+        int firstLength = Math.min(size, windowSize - start);
+        System.arraycopy(floatRing, start, out, 0, firstLength);
+        System.arraycopy(floatRing, 0, out, firstLength, size - firstLength);
+    }
+
+    // Median stage: adds a detection to the history and returns the median of the recent ones.
+    double addFrequencySample(double frequency) {
+        freqHistory[freqIndex] = frequency;
+        freqIndex = (freqIndex + 1) % freqHistory.length;
+        if (freqCount < freqHistory.length) {
+            freqCount++;
+        }
+        return medianFrequency();
+    }
+
+    private double medianFrequency() {
+        if (freqCount == 0) {
+            return 0;
+        }
+        System.arraycopy(freqHistory, 0, freqScratch, 0, freqCount);
+        Arrays.sort(freqScratch, 0, freqCount);
+        int mid = freqCount / 2;
+        if (freqCount % 2 == 1) {
+            return freqScratch[mid];
+        }
+        return (freqScratch[mid - 1] + freqScratch[mid]) / 2.0;
+    }
+
+    private void resetFrequencyHistory() {
+        freqIndex = 0;
+        freqCount = 0;
+    }
+}
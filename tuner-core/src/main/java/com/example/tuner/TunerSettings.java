@@ -0,0 +1,467 @@
+package com.example.tuner;
+
+final class TunerSettings {
+    static final int[] WINDOW_OPTIONS = {2048, 4096, 8192, 16384};
+    static final int DEFAULT_WINDOW_SIZE = 16384;
+    static final double DEFAULT_SMOOTHING_ALPHA = 0.08;
+    static final double DEFAULT_NOISE_FLOOR_DB = -50.0;
+    static final double DEFAULT_YIN_THRESHOLD = 0.12;
+    static final String[] DEFAULT_STRING_NOTES = {"E2", "A2", "D3", "G3", "B3", "E4"};
+    static final String[] NOTE_OPTIONS = buildNoteOptions(2, 5);
+
+    static final DifferenceMode DEFAULT_DIFFERENCE_MODE = DifferenceMode.FFT;
+    static final boolean DEFAULT_FLOAT_PIPELINE = false;
+    static final OverloadPolicy DEFAULT_OVERLOAD_POLICY = OverloadPolicy.COALESCE;
+    static final int[] DECIMATION_OPTIONS = {1, 2, 4};
+    static final int DEFAULT_DECIMATION = 1;
+    static final boolean DEFAULT_LOW_LATENCY = false;
+    static final boolean DEFAULT_TRACKING_SEARCH = true;
+    // Index into stringNotes of the single string being tuned; -1 listens for every string.
+    static final int DEFAULT_TARGET_STRING = -1;
+    // Threads used for direct lag loops on large windows; 1 keeps everything on the analysis thread.
+    static final int[] PARALLELISM_OPTIONS = {1, 2, 3, 4};
+    static final int DEFAULT_PARALLELISM = 1;
+    // Strum check reads every string from one spectrum instead of following a single pitch.
+    static final boolean DEFAULT_STRUM_CHECK = false;
+    // Debug overlay with per-stage analysis timings on the main screen.
+    static final boolean DEFAULT_PERF_OVERLAY = false;
+    // Post-processing of the detections; see PitchTracker.
+    static final PitchTrackerMode DEFAULT_PITCH_TRACKER = PitchTrackerMode.SMOOTHING;
+    // How a pitch is named: nearest string, nearest equal-tempered note, or nearest custom note.
+    static final NoteMode DEFAULT_NOTE_MODE = NoteMode.STRINGS;
+    // A4 in Hz; every note frequency, strings included, is derived from it.
+    static final double DEFAULT_REFERENCE_HZ = 440.0;
+    static final double MIN_REFERENCE_HZ = 415.0;
+    static final double MAX_REFERENCE_HZ = 466.0;
+    // Custom note list, any order; the default is a ukulele in standard tuning.
+    static final String[] DEFAULT_CUSTOM_NOTES = {"G4", "C4", "E4", "A4"};
+    static final int MAX_CUSTOM_NOTES = 48;
+
+    final int windowSize;
+    final double smoothingAlpha;
+    final double noiseFloorDb;
+    final double yinThreshold;
+    final String[] stringNotes;
+    final double[] stringFrequencies;
+    final DifferenceMode differenceMode;
+    final boolean floatPipeline;
+    final OverloadPolicy overloadPolicy;
+    final int decimation;
+    final boolean lowLatency;
+    final boolean trackingSearch;
+    final int targetString;
+    final int parallelism;
+    final boolean strumCheck;
+    final boolean perfOverlay;
+    final PitchTrackerMode pitchTracker;
+    final NoteMode noteMode;
+    final double referenceHz;
+    final String[] customNotes;
+    final double[] customFrequencies;
+
+    private TunerSettings(Builder builder) {
+        this.windowSize = builder.windowSize;
+        this.smoothingAlpha = builder.smoothingAlpha;
+        this.noiseFloorDb = builder.noiseFloorDb;
+        this.yinThreshold = builder.yinThreshold;
+        this.stringNotes = builder.stringNotes;
+        this.stringFrequencies = toFrequencies(builder.stringNotes, builder.referenceHz);
+        this.differenceMode = builder.differenceMode;
+        this.floatPipeline = builder.floatPipeline;
+        this.overloadPolicy = builder.overloadPolicy;
+        this.decimation = builder.decimation;
+        this.lowLatency = builder.lowLatency;
+        this.trackingSearch = builder.trackingSearch;
+        this.targetString = builder.targetString;
+        this.parallelism = builder.parallelism;
+        this.strumCheck = builder.strumCheck;
+        this.perfOverlay = builder.perfOverlay;
+        this.pitchTracker = builder.pitchTracker;
+        this.noteMode = builder.noteMode;
+        this.referenceHz = builder.referenceHz;
+        this.customNotes = builder.customNotes;
+        this.customFrequencies = toFrequencies(builder.customNotes, builder.referenceHz);
+    }
+
+    static TunerSettings load(SettingsStore prefs) {
+        Builder builder = new Builder();
+        builder.windowSize = prefs.getInt("window_size", DEFAULT_WINDOW_SIZE);
+        builder.smoothingAlpha = prefs.getFloat("smoothing_alpha", (float) DEFAULT_SMOOTHING_ALPHA);
+        builder.noiseFloorDb = prefs.getFloat("noise_floor_db", (float) DEFAULT_NOISE_FLOOR_DB);
+        builder.yinThreshold = prefs.getFloat("yin_threshold", (float) DEFAULT_YIN_THRESHOLD);
+        String savedNotes = prefs.getString("string_notes", null);
+        builder.stringNotes = savedNotes == null ? DEFAULT_STRING_NOTES : parseNotes(savedNotes);
+        builder.differenceMode = parseEnum(DifferenceMode.class,
+                prefs.getString("difference_mode", null), DEFAULT_DIFFERENCE_MODE);
+        builder.floatPipeline = prefs.getBoolean("float_pipeline", DEFAULT_FLOAT_PIPELINE);
+        builder.overloadPolicy = parseEnum(OverloadPolicy.class,
+                prefs.getString("overload_policy", null), DEFAULT_OVERLOAD_POLICY);
+        builder.decimation = sanitizeDecimation(prefs.getInt("decimation", DEFAULT_DECIMATION));
+        builder.lowLatency = prefs.getBoolean("low_latency", DEFAULT_LOW_LATENCY);
+        builder.trackingSearch = prefs.getBoolean("tracking_search", DEFAULT_TRACKING_SEARCH);
+        builder.targetString = sanitizeTargetString(prefs.getInt("target_string", DEFAULT_TARGET_STRING));
+        builder.parallelism = sanitizeParallelism(prefs.getInt("parallelism", DEFAULT_PARALLELISM));
+        builder.strumCheck = prefs.getBoolean("strum_check", DEFAULT_STRUM_CHECK);
+        builder.perfOverlay = prefs.getBoolean("perf_overlay", DEFAULT_PERF_OVERLAY);
+        builder.pitchTracker = parseEnum(PitchTrackerMode.class,
+                prefs.getString("pitch_tracker", null), DEFAULT_PITCH_TRACKER);
+        builder.noteMode = parseEnum(NoteMode.class,
+                prefs.getString("note_mode", null), DEFAULT_NOTE_MODE);
+        builder.referenceHz = sanitizeReferenceHz(prefs.getFloat("reference_hz", (float) DEFAULT_REFERENCE_HZ));
+        builder.customNotes = parseCustomNotes(prefs.getString("custom_notes", null), builder.referenceHz);
+        return new TunerSettings(builder);
+    }
+
+    static TunerSettings defaults() {
+        return new TunerSettings(new Builder());
+    }
+
+    void save(SettingsStore prefs) {
+        prefs.edit()
+                .putInt("window_size", windowSize)
+                .putFloat("smoothing_alpha", (float) smoothingAlpha)
+                .putFloat("noise_floor_db", (float) noiseFloorDb)
+                .putFloat("yin_threshold", (float) yinThreshold)
+                .putString("string_notes", joinNotes(stringNotes))
+                .putString("difference_mode", differenceMode.name())
+                .putBoolean("float_pipeline", floatPipeline)
+                .putString("overload_policy", overloadPolicy.name())
+                .putInt("decimation", decimation)
+                .putBoolean("low_latency", lowLatency)
+                .putBoolean("tracking_search", trackingSearch)
+                .putInt("target_string", targetString)
+                .putInt("parallelism", parallelism)
+                .putBoolean("strum_check", strumCheck)
+                .putBoolean("perf_overlay", perfOverlay)
+                .putString("pitch_tracker", pitchTracker.name())
+                .putString("note_mode", noteMode.name())
+                .putFloat("reference_hz", (float) referenceHz)
+                .putString("custom_notes", joinNotes(customNotes))
+                .apply();
+    }
+
+    TunerSettings withWindowSize(int value) {
+        Builder builder = toBuilder();
+        builder.windowSize = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withSmoothingAlpha(double value) {
+        Builder builder = toBuilder();
+        builder.smoothingAlpha = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withNoiseFloorDb(double value) {
+        Builder builder = toBuilder();
+        builder.noiseFloorDb = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withYinThreshold(double value) {
+        Builder builder = toBuilder();
+        builder.yinThreshold = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withStringNotes(String[] value) {
+        Builder builder = toBuilder();
+        builder.stringNotes = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withDifferenceMode(DifferenceMode value) {
+        Builder builder = toBuilder();
+        builder.differenceMode = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withFloatPipeline(boolean value) {
+        Builder builder = toBuilder();
+        builder.floatPipeline = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withOverloadPolicy(OverloadPolicy value) {
+        Builder builder = toBuilder();
+        builder.overloadPolicy = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withDecimation(int value) {
+        Builder builder = toBuilder();
+        builder.decimation = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withLowLatency(boolean value) {
+        Builder builder = toBuilder();
+        builder.lowLatency = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withTrackingSearch(boolean value) {
+        Builder builder = toBuilder();
+        builder.trackingSearch = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withTargetString(int value) {
+        Builder builder = toBuilder();
+        builder.targetString = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withParallelism(int value) {
+        Builder builder = toBuilder();
+        builder.parallelism = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withStrumCheck(boolean value) {
+        Builder builder = toBuilder();
+        builder.strumCheck = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withPerfOverlay(boolean value) {
+        Builder builder = toBuilder();
+        builder.perfOverlay = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withPitchTracker(PitchTrackerMode value) {
+        Builder builder = toBuilder();
+        builder.pitchTracker = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withNoteMode(NoteMode value) {
+        Builder builder = toBuilder();
+        builder.noteMode = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withReferenceHz(double value) {
+        Builder builder = toBuilder();
+        builder.referenceHz = value;
+        return new TunerSettings(builder);
+    }
+
+    TunerSettings withCustomNotes(String[] value) {
+        Builder builder = toBuilder();
+        builder.customNotes = value;
+        return new TunerSettings(builder);
+    }
+
+    private Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.windowSize = windowSize;
+        builder.smoothingAlpha = smoothingAlpha;
+        builder.noiseFloorDb = noiseFloorDb;
+        builder.yinThreshold = yinThreshold;
+        builder.stringNotes = stringNotes;
+        builder.differenceMode = differenceMode;
+        builder.floatPipeline = floatPipeline;
+        builder.overloadPolicy = overloadPolicy;
+        builder.decimation = decimation;
+        builder.lowLatency = lowLatency;
+        builder.trackingSearch = trackingSearch;
+        builder.targetString = targetString;
+        builder.parallelism = parallelism;
+        builder.strumCheck = strumCheck;
+        builder.perfOverlay = perfOverlay;
+        builder.pitchTracker = pitchTracker;
+        builder.noteMode = noteMode;
+        builder.referenceHz = referenceHz;
+        builder.customNotes = customNotes;
+        return builder;
+    }
+
+    private static int sanitizeDecimation(int value) {
+        for (int option : DECIMATION_OPTIONS) {
+            if (option == value) {
+                return value;
+            }
+        }
+        return DEFAULT_DECIMATION;
+    }
+
+    private static int sanitizeTargetString(int value) {
+        return value >= 0 && value < DEFAULT_STRING_NOTES.length ? value : DEFAULT_TARGET_STRING;
+    }
+
+    private static double sanitizeReferenceHz(double value) {
+        return value >= MIN_REFERENCE_HZ && value <= MAX_REFERENCE_HZ ? value : DEFAULT_REFERENCE_HZ;
+    }
+
+    private static int sanitizeParallelism(int value) {
+        for (int option : PARALLELISM_OPTIONS) {
+            if (option == value) {
+                return value;
+            }
+        }
+        return DEFAULT_PARALLELISM;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Enum.valueOf(type, value);
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    private static String joinNotes(String[] notes) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < notes.length; i++) {
+            if (i > 0) {
+                builder.append(",");
+            }
+            builder.append(notes[i]);
+        }
+        return builder.toString();
+    }
+
+    private static String[] parseNotes(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 6) {
+            return DEFAULT_STRING_NOTES;
+        }
+        return parts;
+    }
+
+    /**
+     * Parses a user note list such as "G4 C4 E4 A4" or "d2,a2,d3": sharps only, octaves 0 to 8,
+     * separated by commas or spaces, in any order, at most {@link #MAX_CUSTOM_NOTES}. Returns null
+     * when the list is empty, too long or has an entry that is not a note or that the detector
+     * cannot hear at referenceHz, outside {@link TunerEngine#MIN_FREQ} to {@link TunerEngine#MAX_FREQ}.
+     */
+    static String[] parseNoteList(String value, double referenceHz) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        String[] parts = trimmed.split("[,\\s]+");
+        if (parts.length > MAX_CUSTOM_NOTES) {
+            return null;
+        }
+        for (int i = 0; i < parts.length; i++) {
+            String note = Character.toUpperCase(parts[i].charAt(0)) + parts[i].substring(1);
+            if (!isNote(note)) {
+                return null;
+            }
+            double frequency = noteToFrequency(note, referenceHz);
+            if (frequency < TunerEngine.MIN_FREQ || frequency > TunerEngine.MAX_FREQ) {
+                return null;
+            }
+            parts[i] = note;
+        }
+        return parts;
+    }
+
+    private static String[] parseCustomNotes(String value, double referenceHz) {
+        String[] notes = parseNoteList(value, referenceHz);
+        return notes == null ? DEFAULT_CUSTOM_NOTES : notes;
+    }
+
+    private static boolean isNote(String note) {
+        if (note.length() < 2 || note.length() > 3) {
+            return false;
+        }
+        char octave = note.charAt(note.length() - 1);
+        return octave >= '0' && octave <= '8' && noteToSemitone(note.substring(0, note.length() - 1)) >= 0;
+    }
+
+    private static double[] toFrequencies(String[] notes, double referenceHz) {
+        double[] result = new double[notes.length];
+        for (int i = 0; i < notes.length; i++) {
+            result[i] = noteToFrequency(notes[i], referenceHz);
+        }
+        return result;
+    }
+
+    private static double noteToFrequency(String note, double referenceHz) {
+        if (note == null || note.length() < 2) {
+            return 0;
+        }
+        int octave = Character.getNumericValue(note.charAt(note.length() - 1));
+        String name = note.substring(0, note.length() - 1);
+        int semitone = Math.max(0, noteToSemitone(name));
+        int midi = (octave + 1) * 12 + semitone;
+        return referenceHz * Math.pow(2.0, (midi - 69) / 12.0);
+    }
+
+    private static int noteToSemitone(String name) {
+        switch (name) {
+            case "C":
+                return 0;
+            case "C#":
+                return 1;
+            case "D":
+                return 2;
+            case "D#":
+                return 3;
+            case "E":
+                return 4;
+            case "F":
+                return 5;
+            case "F#":
+                return 6;
+            case "G":
+                return 7;
+            case "G#":
+                return 8;
+            case "A":
+                return 9;
+            case "A#":
+                return 10;
+            case "B":
+                return 11;
+            default:
+                return -1;
+        }
+    }
+
+    private static String[] buildNoteOptions(int minOctave, int maxOctave) {
+        String[] names = {"C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B"};
+        int total = (maxOctave - minOctave + 1) * names.length;
+        String[] options = new String[total];
+        int index = 0;
+        for (int octave = minOctave; octave <= maxOctave; octave++) {
+            for (String name : names) {
+                options[index++] = name + octave;
+            }
+        }
+        return options;
+    }
+
+    // Mutable staging area so each with* copy only names the field it changes.
+    private static final class Builder {
+        int windowSize = DEFAULT_WINDOW_SIZE;
+        double smoothingAlpha = DEFAULT_SMOOTHING_ALPHA;
+        double noiseFloorDb = DEFAULT_NOISE_FLOOR_DB;
+        double yinThreshold = DEFAULT_YIN_THRESHOLD;
+        String[] stringNotes = DEFAULT_STRING_NOTES;
+        DifferenceMode differenceMode = DEFAULT_DIFFERENCE_MODE;
+        boolean floatPipeline = DEFAULT_FLOAT_PIPELINE;
+        OverloadPolicy overloadPolicy = DEFAULT_OVERLOAD_POLICY;
+        int decimation = DEFAULT_DECIMATION;
+        boolean lowLatency = DEFAULT_LOW_LATENCY;
+        boolean trackingSearch = DEFAULT_TRACKING_SEARCH;
+        int targetString = DEFAULT_TARGET_STRING;
+        int parallelism = DEFAULT_PARALLELISM;
+        boolean strumCheck = DEFAULT_STRUM_CHECK;
+        boolean perfOverlay = DEFAULT_PERF_OVERLAY;
+        PitchTrackerMode pitchTracker = DEFAULT_PITCH_TRACKER;
+        NoteMode noteMode = DEFAULT_NOTE_MODE;
+        double referenceHz = DEFAULT_REFERENCE_HZ;
+        String[] customNotes = DEFAULT_CUSTOM_NOTES;
+    }
+}
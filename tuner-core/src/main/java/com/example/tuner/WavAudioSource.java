@@ -0,0 +1,40 @@
+package com.example.tuner;
+
+import java.io.File;
+import java.io.IOException;
+
+/** Plays a WAV file into the engine at its own sample rate, mixed to mono. */
+final class WavAudioSource extends PacedAudioSource {
+
+    private final File file;
+    private WavFile wav;
+    private long position;
+
+    WavAudioSource(File file, double speed) {
+        super(speed);
+        this.file = file;
+    }
+
+    @Override
+    int open(int requestedSampleRate) {
+        try {
+            wav = WavFile.open(file);
+        } catch (IOException e) {
+            return 0;
+        }
+        position = 0;
+        return wav.sampleRate;
+    }
+
+    @Override
+    int read(short[] out, int count) {
+        int n = wav.read(position, out, count);
+        position += n;
+        return n;
+    }
+
+    @Override
+    void close() {
+        wav = null;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.tuner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-mapped reader for RIFF/WAVE recordings: 16/24/32-bit integer PCM or 32-bit float, any
+ * channel count, mixed down to mono 16-bit or float on the fly. The file is never copied onto the
+ * heap; {@link #read} decodes straight from the mapping into the caller's buffer.
+ */
+final class WavFile {
+
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_FLOAT = 3;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+
+    final int sampleRate;
+    final int channels;
+    final int bitsPerSample;
+    final long frames;
+    private final boolean floatSamples;
+    private final int frameBytes;
+    private final ByteBuffer data;
+    // Mono 16-bit data is bulk-copied through a short view.
+    private final ShortBuffer monoShorts;
+
+    private WavFile(int format, int channels, int sampleRate, int bitsPerSample, ByteBuffer data) {
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.floatSamples = format == FORMAT_FLOAT;
+        this.frameBytes = channels * bitsPerSample / 8;
+        this.frames = data.remaining() / frameBytes;
+        this.data = data;
+        monoShorts = channels == 1 && bitsPerSample == 16 && !floatSamples ? data.asShortBuffer() : null;
+    }
+
+    static WavFile open(File file) throws IOException {
+        ByteBuffer mapped;
+        long fileSize;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            fileSize = channel.size();
+            // The mapping stays valid after the channel is closed. One buffer holds at most
+            // Integer.MAX_VALUE bytes, so the data chunk has to end within them.
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE));
+        }
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        if (mapped.remaining() < 12 || mapped.getInt(0) != 0x46464952 || mapped.getInt(8) != 0x45564157) {
+            throw new IOException("Not a RIFF/WAVE file: " + file);
+        }
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bits = 0;
+        int pos = 12;
+        while (pos + 8 <= mapped.limit()) {
+            int id = mapped.getInt(pos);
+            long size = mapped.getInt(pos + 4) & 0xFFFFFFFFL;
+            int body = pos + 8;
+            if (id == 0x20746d66) { // "fmt "
+                format = mapped.getShort(body) & 0xFFFF;
+                channels = mapped.getShort(body + 2) & 0xFFFF;
+                sampleRate = mapped.getInt(body + 4);
+                bits = mapped.getShort(body + 14) & 0xFFFF;
+                if (format == FORMAT_EXTENSIBLE && size >= 26) {
+                    // The sub-format GUID starts with the plain format tag.
+                    format = mapped.getShort(body + 24) & 0xFFFF;
+                }
+            } else if (id == 0x61746164) { // "data"
+                if (format < 0) {
+                    throw new IOException("WAV data before fmt chunk: " + file);
+                }
+                checkFormat(file, format, channels, bits);
+                // Streaming writers leave the size at 0xFFFFFFFF, so only the bytes actually there count.
+                long available = Math.min(size, fileSize - body);
+                if (body + available > mapped.limit()) {
+                    throw new IOException("WAV data chunk too large (" + available + " bytes from offset " + body
+                            + ", at most " + Integer.MAX_VALUE + " bytes can be read): " + file);
+                }
+                int end = (int) (body + available);
+                mapped.position(body);
+                mapped.limit(end);
+                ByteBuffer data = mapped.slice().order(ByteOrder.LITTLE_ENDIAN);
+                return new WavFile(format, channels, sampleRate, bits, data);
+            }
+            // Chunks are word aligned.
+            pos = (int) Math.min(Integer.MAX_VALUE, body + size + (size & 1));
+        }
+        throw new IOException("No data chunk: " + file);
+    }
+
+    private static void checkFormat(File file, int format, int channels, int bits) throws IOException {
+        boolean supported = channels > 0 && (format == FORMAT_PCM && (bits == 16 || bits == 24 || bits == 32)
+                || format == FORMAT_FLOAT && bits == 32);
+        if (!supported) {
+            throw new IOException("Unsupported WAV encoding (format " + format + ", " + bits
+                    + " bit, " + channels + " ch): " + file);
+        }
+    }
+
+    double durationSeconds() {
+        return frames / (double) sampleRate;
+    }
+
+    /** Decodes frames from {@code frame} onwards into {@code out}; returns how many were read. */
+    int read(long frame, short[] out, int count) {
+        int n = (int) Math.min(count, frames - frame);
+        if (n <= 0) {
+            return 0;
+        }
+        if (monoShorts != null) {
+            monoShorts.position((int) frame);
+            monoShorts.get(out, 0, n);
+            return n;
+        }
+        int pos = (int) (frame * frameBytes);
+        int sampleBytes = bitsPerSample / 8;
+        for (int i = 0; i < n; i++) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++, pos += sampleBytes) {
+                sum += sampleAt(pos);
+            }
+            float mono = sum / channels;
+            out[i] = (short) Math.max(-32768, Math.min(32767, Math.round(mono * 32768f)));
+        }
+        return n;
+    }
+
+    /**
+     * Decodes frames as floats in [-1, 1), for the float pipeline: 24-bit, 32-bit and float data
+     * keep their full resolution instead of being rounded to 16 bits first.
+     */
+    int read(long frame, float[] out, int count) {
+        int n = (int) Math.min(count, frames - frame);
+        if (n <= 0) {
+            return 0;
+        }
+        int pos = (int) (frame * frameBytes);
+        int sampleBytes = bitsPerSample / 8;
+        for (int i = 0; i < n; i++) {
+            float sum = 0;
+            for (int c = 0; c < channels; c++, pos += sampleBytes) {
+                sum += sampleAt(pos);
+            }
+            out[i] = sum / channels;
+        }
+        return n;
+    }
+
+    // One sample scaled to [-1, 1).
+    private float sampleAt(int pos) {
+        if (floatSamples) {
+            return data.getFloat(pos);
+        }
+        switch (bitsPerSample) {
+            case 16:
+                return data.getShort(pos) / 32768f;
+            case 24:
+                int value = (data.get(pos) & 0xFF) | (data.get(pos + 1) & 0xFF) << 8 | data.get(pos + 2) << 16;
+                return value / 8388608f;
+            default:
+                return data.getInt(pos) / 2147483648f;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.example.tuner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Accuracy and time-to-stable regression check on synthetic plucks. Every scenario (clean,
+ * inharmonic, noisy, detuned, bent, fast string changes and soft changes to a harmonic of the
+ * previous string) is rendered once and fed hop by hop
+ * through an offline {@link TunerEngine} for each configuration. Per configuration and scenario
+ * it reports:
+ * <ul>
+ * <li>missed: notes that never gave a stable reading within 50 cents of the truth; a note tuned
+ * more than 20 cents off its string, which the engine never calls stable, counts any reading;
+ * <li>latency: median and worst time from the pluck to that first stable reading, and the median
+ * number of hops it took over the notes near enough their string to settle;
+ * <li>cent error: mean (bias), median and 95th percentile |error| of stable readings once locked,
+ * against the true pitch at the window centre;
+ * <li>jitter: RMS hop-to-hop change of the cent error between consecutive stable readings of a
+ * note, so a bend the reading follows is not counted;
+ * <li>octave: share of readings, after the first window of each note, a whole number of octaves
+ * off;
+ * <li>wrong: share of stable readings, after the first window of each note, more than a semitone
+ * off, such as a lock left on the previous string when the new one is its harmonic.
+ * </ul>
+ * With no configuration flags it runs a matrix over the window sizes, low latency, float, direct
+ * and decimated difference, and repeats the window sizes with the Kalman pitch tracker so both
+ * post-processing chains can be compared. The {@code --max-*} gates make it exit with status 1
+ * when any row is worse; {@code ./gradlew :tuner-core:accuracy} prints the full report, and
+ * {@link AccuracyTest} holds the matrix to fixed gates in every test run.
+ */
+public final class AccuracyHarness {
+
+    static final int SAMPLE_RATE = 48000;
+    private static final double[] OPEN_STRINGS = {82.41, 110.00, 146.83, 196.00, 246.94, 329.63};
+    private static final double LOCK_CENTS = 50.0;
+    private static final double OCTAVE_SLACK_CENTS = 100.0;
+
+    private static final String USAGE = "Usage: AccuracyHarness [--window N] [--low-latency] [--float] "
+            + "[--direct] [--decimation N] [--kalman] [--scenario NAME] [--max-p95-cents C] [--max-octave-pct P] "
+            + "[--max-jitter-cents C] [--max-wrong-pct P] [--max-latency-ms MS] [--max-missed N]";
+
+    private AccuracyHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        TunerSettings custom = TunerSettings.defaults();
+        boolean customized = false;
+        String only = null;
+        double maxP95Cents = Double.MAX_VALUE;
+        double maxOctavePct = Double.MAX_VALUE;
+        double maxJitterCents = Double.MAX_VALUE;
+        double maxWrongPct = Double.MAX_VALUE;
+        double maxLatencyMs = Double.MAX_VALUE;
+        int maxMissed = Integer.MAX_VALUE;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--window":
+                    custom = custom.withWindowSize(Integer.parseInt(args[++i]));
+                    customized = true;
+                    break;
+                case "--low-latency":
+                    custom = custom.withLowLatency(true);
+                    customized = true;
+                    break;
+                case "--float":
+                    custom = custom.withFloatPipeline(true);
+                    customized = true;
+                    break;
+                case "--direct":
+                    custom = custom.withDifferenceMode(DifferenceMode.DIRECT);
+                    customized = true;
+                    break;
+                case "--decimation":
+                    custom = custom.withDecimation(Integer.parseInt(args[++i]));
+                    customized = true;
+                    break;
+                case "--kalman":
+                    custom = custom.withPitchTracker(PitchTrackerMode.KALMAN);
+                    customized = true;
+                    break;
+                case "--scenario":
+                    only = args[++i];
+                    break;
+                case "--max-p95-cents":
+                    maxP95Cents = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-octave-pct":
+                    maxOctavePct = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-jitter-cents":
+                    maxJitterCents = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-wrong-pct":
+                    maxWrongPct = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-latency-ms":
+                    maxLatencyMs = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-missed":
+                    maxMissed = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+        List<String> configNames = new ArrayList<>();
+        List<TunerSettings> configs = new ArrayList<>();
+        if (customized) {
+            configNames.add("custom");
+            configs.add(custom);
+        } else {
+            addMatrix(configNames, configs);
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (Scenario scenario : scenarios()) {
+            if (only == null || scenario.name.equals(only)) {
+                scenarios.add(scenario);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            System.err.println("Unknown scenario: " + only);
+            System.exit(2);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<Stats>> runs = new ArrayList<>();
+        for (TunerSettings config : configs) {
+            for (Scenario scenario : scenarios) {
+                runs.add(pool.submit(() -> run(config, scenario)));
+            }
+        }
+        pool.shutdown();
+        System.out.println(String.format(Locale.ROOT, "%-14s %-10s %5s %6s %7s %7s %7s %6s %7s %7s %8s %8s %5s",
+                "config", "scenario", "notes", "missed", "bias", "med|c|", "p95|c|", "jitter", "octave%",
+                "wrong%", "lat.med", "lat.max", "hops"));
+        List<String> failures = new ArrayList<>();
+        int index = 0;
+        for (String configName : configNames) {
+            for (Scenario scenario : scenarios) {
+                Stats stats;
+                try {
+                    stats = runs.get(index++).get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(configName + "/" + scenario.name, e.getCause());
+                }
+                System.out.println(stats.format(configName, scenario.name));
+                stats.checkGates(configName + "/" + scenario.name, maxP95Cents, maxOctavePct, maxJitterCents,
+                        maxWrongPct, maxLatencyMs, maxMissed, failures);
+            }
+        }
+        for (String failure : failures) {
+            System.out.println("FAIL " + failure);
+        }
+        if (!failures.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    static void addMatrix(List<String> names, List<TunerSettings> configs) {
+        TunerSettings defaults = TunerSettings.defaults();
+        for (int window : TunerSettings.WINDOW_OPTIONS) {
+            names.add("w" + window);
+            configs.add(defaults.withWindowSize(window));
+            names.add("w" + window + "-ll");
+            configs.add(defaults.withWindowSize(window).withLowLatency(true));
+        }
+        names.add("float");
+        configs.add(defaults.withFloatPipeline(true));
+        names.add("direct");
+        configs.add(defaults.withDifferenceMode(DifferenceMode.DIRECT));
+        names.add("decim2");
+        configs.add(defaults.withDifferenceMode(DifferenceMode.DIRECT).withDecimation(2));
+        names.add("no-tracking");
+        configs.add(defaults.withTrackingSearch(false));
+        for (int window : TunerSettings.WINDOW_OPTIONS) {
+            names.add("w" + window + "-kalman");
+            configs.add(defaults.withWindowSize(window).withPitchTracker(PitchTrackerMode.KALMAN));
+        }
+    }
+
+    static List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(openStrings("clean", 0, 60, 0, new double[6], 2.0));
+        scenarios.add(openStrings("inharmonic", 1e-4, 40, 0, new double[6], 2.0));
+        scenarios.add(openStrings("snr20", 1e-4, 20, 0, new double[6], 2.0));
+        scenarios.add(openStrings("snr10", 1e-4, 10, 0, new double[6], 2.0));
+        scenarios.add(openStrings("detuned", 1e-4, 40, 0, new double[] {-35, 20, -10, 45, -25, 15}, 2.0));
+        scenarios.add(openStrings("bend", 1e-4, 40, 40, new double[6], 2.0));
+        // Octave and shared-partial neighbours back to back, three quarters of a second each: long
+        // enough for the largest window to hear the new string before the next one.
+        int[] order = {0, 4, 1, 5, 2, 3, 0, 5};
+        PluckedString[] changes = new PluckedString[order.length];
+        for (int i = 0; i < order.length; i++) {
+            changes[i] = new PluckedString(OPEN_STRINGS[order[i]], 0.75, 1e-4, 1.5, 0);
+        }
+        scenarios.add(new Scenario("changes", changes, 40));
+        // A string, then a softer pluck of the string at its 3rd or 4th harmonic: the level barely
+        // rises and the old period still has a dip, so only the detector can see the change.
+        int[][] pairs = {{0, 4}, {1, 5}, {0, 5}};
+        PluckedString[] harmonics = new PluckedString[pairs.length * 2];
+        for (int i = 0; i < pairs.length; i++) {
+            harmonics[2 * i] = new PluckedString(OPEN_STRINGS[pairs[i][0]], 0.75, 1e-4, 1.5, 0);
+            harmonics[2 * i + 1] = new PluckedString(OPEN_STRINGS[pairs[i][1]], 0.75, 1e-4, 1.5, 0, 0.5);
+        }
+        scenarios.add(new Scenario("harmonics", harmonics, 40));
+        return scenarios;
+    }
+
+    private static Scenario openStrings(String name, double inharmonicity, double snrDb, double bendCents,
+                                        double[] offsetCents, double seconds) {
+        PluckedString[] notes = new PluckedString[OPEN_STRINGS.length];
+        for (int i = 0; i < notes.length; i++) {
+            double frequency = OPEN_STRINGS[i] * Math.pow(2.0, offsetCents[i] / 1200.0);
+            notes[i] = new PluckedString(frequency, seconds, inharmonicity, 1.5, bendCents);
+        }
+        return new Scenario(name, notes, snrDb);
+    }
+
+    static Stats run(TunerSettings config, Scenario scenario) {
+        Recorder recorder = new Recorder(scenario.samples.length);
+        TunerEngine engine = new TunerEngine(recorder);
+        engine.applyConfig(config);
+        engine.startOffline(SAMPLE_RATE);
+        short[] hop = new short[engine.hopSize()];
+        for (int pos = 0; pos < scenario.samples.length; pos += hop.length) {
+            int count = Math.min(hop.length, scenario.samples.length - pos);
+            System.arraycopy(scenario.samples, pos, hop, 0, count);
+            recorder.endSample = pos + count;
+            engine.feedOffline(hop, count);
+        }
+        engine.stopOffline();
+        return evaluate(scenario, recorder, config.windowSize);
+    }
+
+    private static Stats evaluate(Scenario scenario, Recorder recorder, int windowSize) {
+        Stats stats = new Stats(scenario.notes.length, recorder.hops);
+        int hop = 0;
+        for (int n = 0; n < scenario.notes.length; n++) {
+            PluckedString note = scenario.notes[n];
+            int onset = scenario.onsets[n];
+            int end = onset + note.length(SAMPLE_RATE);
+            boolean locked = false;
+            int hops = 0;
+            double previous = Double.NaN;
+            // The engine only calls a reading stable near the string's target, so a note tuned
+            // further off than that settles at its first reading instead.
+            boolean inTune = Math.abs(centsFromString(note.frequencyHz)) < PitchTracker.STABLE_CENTS;
+            for (; hop < recorder.hops && recorder.hopEnd[hop] <= end; hop++) {
+                int sample = recorder.hopEnd[hop];
+                double frequency = recorder.frequency[hop];
+                if (sample <= onset) {
+                    continue;
+                }
+                hops++;
+                if (frequency <= 0) {
+                    previous = Double.NaN;
+                    continue;
+                }
+                double centre = Math.max(0, sample - windowSize / 2 - onset) / (double) SAMPLE_RATE;
+                double cents = 1200.0 * Math.log(frequency / note.frequencyAt(centre)) / Math.log(2.0);
+                if (sample - onset >= windowSize) {
+                    stats.readings++;
+                    double octaves = Math.rint(cents / 1200.0);
+                    if (octaves != 0 && Math.abs(cents - 1200.0 * octaves) < OCTAVE_SLACK_CENTS) {
+                        stats.octaveErrors++;
+                    }
+                }
+                if (inTune && !recorder.stable[hop]) {
+                    previous = Double.NaN;
+                    continue;
+                }
+                if (sample - onset >= windowSize) {
+                    stats.stableReadings++;
+                    if (Math.abs(cents) >= OCTAVE_SLACK_CENTS) {
+                        stats.wrongStable++;
+                    }
+                }
+                if (!locked && Math.abs(cents) < LOCK_CENTS) {
+                    locked = true;
+                    if (inTune) {
+                        stats.hopsToStable[stats.settled++] = hops;
+                    }
+                    stats.latencyMs[stats.locked++] = (sample - onset) * 1000.0 / SAMPLE_RATE;
+                }
+                if (locked && Math.abs(cents) < OCTAVE_SLACK_CENTS) {
+                    stats.cents[stats.centCount++] = cents;
+                    if (!Double.isNaN(previous)) {
+                        stats.jitterSquares += (cents - previous) * (cents - previous);
+                        stats.jitterSteps++;
+                    }
+                    previous = cents;
+                }
+            }
+            if (!locked) {
+                stats.missed++;
+            }
+        }
+        return stats;
+    }
+
+    private static double centsFromString(double frequency) {
+        double nearest = Double.MAX_VALUE;
+        for (double string : OPEN_STRINGS) {
+            double cents = 1200.0 * Math.log(frequency / string) / Math.log(2.0);
+            if (Math.abs(cents) < Math.abs(nearest)) {
+                nearest = cents;
+            }
+        }
+        return nearest;
+    }
+
+    /** A sequence of plucks rendered back to back with white noise at a fixed SNR per note. */
+    static final class Scenario {
+        final String name;
+        final PluckedString[] notes;
+        final int[] onsets;
+        final short[] samples;
+
+        Scenario(String name, PluckedString[] notes, double snrDb) {
+            this.name = name;
+            this.notes = notes;
+            onsets = new int[notes.length];
+            int total = 0;
+            for (int i = 0; i < notes.length; i++) {
+                onsets[i] = total;
+                total += notes[i].length(SAMPLE_RATE);
+            }
+            float[] mix = new float[total];
+            Random random = new Random(name.hashCode());
+            for (int i = 0; i < notes.length; i++) {
+                double power = notes[i].render(mix, onsets[i], SAMPLE_RATE);
+                double sigma = Math.sqrt(power / Math.pow(10.0, snrDb / 10.0));
+                for (int s = onsets[i], e = s + notes[i].length(SAMPLE_RATE); s < e; s++) {
+                    mix[s] += (float) (sigma * random.nextGaussian());
+                }
+            }
+            samples = new short[total];
+            for (int i = 0; i < total; i++) {
+                samples[i] = (short) Math.max(-32768, Math.min(32767, Math.round(mix[i] * 32767f)));
+            }
+        }
+    }
+
+    private static final class Recorder implements TunerEngine.Listener {
+        final int[] hopEnd;
+        final double[] frequency;
+        final boolean[] stable;
+        int hops;
+        // Sample index just past the hop being fed, set before each feedOffline.
+        int endSample;
+
+        // Generous: one entry per 256 samples covers the shortest hop.
+        Recorder(int samples) {
+            int capacity = samples / 256 + 2;
+            hopEnd = new int[capacity];
+            frequency = new double[capacity];
+            stable = new boolean[capacity];
+        }
+
+        @Override
+        public void onPitch(PitchResult result) {
+            hopEnd[hops] = endSample;
+            frequency[hops] = result.hasSignal ? result.frequencyHz : 0;
+            stable[hops] = result.hasSignal && result.stable;
+            hops++;
+        }
+
+        @Override
+        public void onAudioApiUsed(boolean isAAudio) {
+        }
+    }
+
+    static final class Stats {
+        final double[] latencyMs;
+        final double[] hopsToStable;
+        final double[] cents;
+        double jitterSquares;
+        int jitterSteps;
+        int locked;
+        int settled;
+        int missed;
+        int centCount;
+        int readings;
+        int octaveErrors;
+        int stableReadings;
+        int wrongStable;
+
+        Stats(int notes, int hops) {
+            latencyMs = new double[notes];
+            hopsToStable = new double[notes];
+            cents = new double[hops];
+        }
+
+        double bias() {
+            double sum = 0;
+            for (int i = 0; i < centCount; i++) {
+                sum += cents[i];
+            }
+            return centCount > 0 ? sum / centCount : Double.NaN;
+        }
+
+        double percentileAbsCents(double p) {
+            double[] magnitudes = new double[centCount];
+            for (int i = 0; i < centCount; i++) {
+                magnitudes[i] = Math.abs(cents[i]);
+            }
+            return percentile(magnitudes, centCount, p);
+        }
+
+        // NaN when there were never two stable readings in a row to compare.
+        double jitterCents() {
+            return jitterSteps > 0 ? Math.sqrt(jitterSquares / jitterSteps) : Double.NaN;
+        }
+
+        double octavePercent() {
+            return readings > 0 ? 100.0 * octaveErrors / readings : 0;
+        }
+
+        double wrongPercent() {
+            return stableReadings > 0 ? 100.0 * wrongStable / stableReadings : 0;
+        }
+
+        double medianLatencyMs() {
+            return percentile(latencyMs.clone(), locked, 0.5);
+        }
+
+        double maxLatencyMs() {
+            return percentile(latencyMs.clone(), locked, 1.0);
+        }
+
+        double medianHopsToStable() {
+            return percentile(hopsToStable.clone(), settled, 0.5);
+        }
+
+        // Adds one line to failures for every gate this row is worse than. A row with nothing to
+        // measure fails too: NaN compares false against every limit and would pass them all.
+        void checkGates(String row, double maxP95Cents, double maxOctavePct, double maxJitterCents,
+                        double maxWrongPct, double maxLatencyMs, int maxMissed, List<String> failures) {
+            if (centCount == 0 || jitterSteps == 0 || locked == 0) {
+                failures.add(row + ": no stable readings to measure");
+                return;
+            }
+            if (percentileAbsCents(0.95) > maxP95Cents) {
+                failures.add(row + ": p95 cent error " + percentileAbsCents(0.95) + " above " + maxP95Cents);
+            }
+            if (octavePercent() > maxOctavePct) {
+                failures.add(row + ": octave errors " + octavePercent() + "% above " + maxOctavePct + "%");
+            }
+            if (jitterCents() > maxJitterCents) {
+                failures.add(row + ": jitter " + jitterCents() + " cents above " + maxJitterCents);
+            }
+            if (wrongPercent() > maxWrongPct) {
+                failures.add(row + ": wrong stable readings " + wrongPercent() + "% above " + maxWrongPct + "%");
+            }
+            if (medianLatencyMs() > maxLatencyMs) {
+                failures.add(row + ": median latency " + medianLatencyMs() + " ms above " + maxLatencyMs + " ms");
+            }
+            if (missed > maxMissed) {
+                failures.add(row + ": " + missed + " notes never stable, more than " + maxMissed);
+            }
+        }
+
+        String format(String config, String scenario) {
+            String jitter = jitterSteps > 0 ? String.format(Locale.ROOT, "%6.2f", jitterCents()) : "     -";
+            return String.format(Locale.ROOT, "%-14s %-10s %5d %6d %+7.2f %7.2f %7.2f %s %7.2f %7.2f %8.0f %8.0f %5.0f",
+                    config, scenario, latencyMs.length, missed, bias(), percentileAbsCents(0.5),
+                    percentileAbsCents(0.95), jitter, octavePercent(), wrongPercent(), medianLatencyMs(),
+                    maxLatencyMs(), medianHopsToStable());
+        }
+
+        private static double percentile(double[] values, int count, double p) {
+            if (count == 0) {
+                return Double.NaN;
+            }
+            Arrays.sort(values, 0, count);
+            return values[(int) Math.min(count - 1, Math.floor(p * count))];
+        }
+    }
+}
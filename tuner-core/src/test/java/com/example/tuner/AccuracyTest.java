@@ -0,0 +1,156 @@
+package com.example.tuner;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the {@link AccuracyHarness} matrix over every synthetic pluck scenario and fails when a row
+ * is worse than the gates for its window size; both pitch trackers are held to the same gates. The
+ * gates sit a little above what the detector does today, so a change that costs accuracy, adds
+ * octave errors, misses or delays notes or makes the reading jumpier shows here rather than on a
+ * guitar.
+ */
+class AccuracyTest {
+
+    // Per window size 2048, 4096, 8192, 16384: p95 |cents|, octave error %, jitter in cents,
+    // wrong stable readings %, median latency in ms. No window may miss a note. The 2048 window
+    // reads the low strings of the noisy plucks up to 20 cents sharp as they fade into the noise,
+    // and the Kalman reading stays stable on them a little longer than smoothing does.
+    private static final int[] WINDOWS = {2048, 4096, 8192, 16384};
+    private static final double[][] GATES = {
+            {15, 1, 0.5, 1, 80},
+            {20, 1, 1.5, 1, 160},
+            {35, 1, 2, 1, 320},
+            {40, 1, 3.5, 1, 640},
+    };
+    private static final double JITTER_SLACK_CENTS = 0.01;
+
+    @Test
+    void everyRowStaysWithinItsGates() {
+        List<String> names = new ArrayList<>();
+        List<TunerSettings> configs = new ArrayList<>();
+        AccuracyHarness.addMatrix(names, configs);
+        List<AccuracyHarness.Scenario> scenarios = AccuracyHarness.scenarios();
+        List<String> failures = new ArrayList<>();
+        for (int c = 0; c < configs.size(); c++) {
+            TunerSettings config = configs.get(c);
+            double[] gate = gate(config);
+            for (AccuracyHarness.Scenario scenario : scenarios) {
+                AccuracyHarness.Stats stats = AccuracyHarness.run(config, scenario);
+                stats.checkGates(names.get(c) + "/" + scenario.name, gate[0], gate[1], gate[2],
+                        gate[3], gate[4], 0, failures);
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    // A lock that outlives a string change reads wrong but steady, so tracking may never give more
+    // wrong stable readings or missed notes than sweeping every lag on every hop.
+    @Test
+    void trackingReadsLikeAFullSweep() {
+        List<AccuracyHarness.Scenario> scenarios = AccuracyHarness.scenarios();
+        List<String> failures = new ArrayList<>();
+        for (int window : WINDOWS) {
+            TunerSettings tracking = TunerSettings.defaults().withWindowSize(window);
+            TunerSettings sweep = tracking.withTrackingSearch(false);
+            for (AccuracyHarness.Scenario scenario : scenarios) {
+                AccuracyHarness.Stats expected = AccuracyHarness.run(sweep, scenario);
+                AccuracyHarness.Stats actual = AccuracyHarness.run(tracking, scenario);
+                if (actual.wrongPercent() > expected.wrongPercent() || actual.missed > expected.missed) {
+                    failures.add("w" + window + "/" + scenario.name + ": tracking " + actual.wrongPercent()
+                            + "% wrong, " + actual.missed + " missed; full sweep " + expected.wrongPercent()
+                            + "% wrong, " + expected.missed + " missed");
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    // Short windows can read a harmonic of the string they track, so low latency may never give
+    // more octave errors or wrong stable readings than analysing the full window every hop.
+    @Test
+    void lowLatencyReadsLikeTheFullWindow() {
+        List<AccuracyHarness.Scenario> scenarios = AccuracyHarness.scenarios();
+        List<String> failures = new ArrayList<>();
+        for (int window : WINDOWS) {
+            TunerSettings full = TunerSettings.defaults().withWindowSize(window);
+            TunerSettings lowLatency = full.withLowLatency(true);
+            for (AccuracyHarness.Scenario scenario : scenarios) {
+                AccuracyHarness.Stats expected = AccuracyHarness.run(full, scenario);
+                AccuracyHarness.Stats actual = AccuracyHarness.run(lowLatency, scenario);
+                if (actual.octavePercent() > expected.octavePercent()
+                        || actual.wrongPercent() > expected.wrongPercent()) {
+                    failures.add("w" + window + "/" + scenario.name + ": low latency " + actual.octavePercent()
+                            + "% octave, " + actual.wrongPercent() + "% wrong; full window "
+                            + expected.octavePercent() + "% octave, " + expected.wrongPercent() + "% wrong");
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    // A bend is meant to move the reading, so there the Kalman filter must follow it at least as
+    // closely as smoothing; everywhere else it may not jitter more, give or take a hundredth of
+    // the one-cent step the display shows.
+    @Test
+    void kalmanJittersNoMoreThanSmoothing() {
+        List<AccuracyHarness.Scenario> scenarios = AccuracyHarness.scenarios();
+        List<String> failures = new ArrayList<>();
+        for (int window : WINDOWS) {
+            TunerSettings smoothing = TunerSettings.defaults().withWindowSize(window);
+            TunerSettings kalman = smoothing.withPitchTracker(PitchTrackerMode.KALMAN);
+            for (AccuracyHarness.Scenario scenario : scenarios) {
+                AccuracyHarness.Stats expected = AccuracyHarness.run(smoothing, scenario);
+                AccuracyHarness.Stats actual = AccuracyHarness.run(kalman, scenario);
+                if (scenario.name.equals("bend")) {
+                    double smoothingP95 = expected.percentileAbsCents(0.95);
+                    double kalmanP95 = actual.percentileAbsCents(0.95);
+                    if (!(kalmanP95 <= smoothingP95)) {
+                        failures.add("w" + window + "/bend: kalman p95 " + kalmanP95 + " above smoothing "
+                                + smoothingP95);
+                    }
+                } else if (!(actual.jitterCents() <= expected.jitterCents() + JITTER_SLACK_CENTS)) {
+                    failures.add("w" + window + "/" + scenario.name + ": kalman jitter " + actual.jitterCents()
+                            + " above smoothing " + expected.jitterCents());
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    // The gate vets each detection, so the Kalman filter calls a note stable one hop sooner; it may
+    // not buy that by missing notes smoothing finds.
+    @Test
+    void kalmanSettlesSoonerThanSmoothing() {
+        List<AccuracyHarness.Scenario> scenarios = AccuracyHarness.scenarios();
+        List<String> failures = new ArrayList<>();
+        for (int window : WINDOWS) {
+            TunerSettings smoothing = TunerSettings.defaults().withWindowSize(window);
+            TunerSettings kalman = smoothing.withPitchTracker(PitchTrackerMode.KALMAN);
+            for (AccuracyHarness.Scenario scenario : scenarios) {
+                AccuracyHarness.Stats expected = AccuracyHarness.run(smoothing, scenario);
+                AccuracyHarness.Stats actual = AccuracyHarness.run(kalman, scenario);
+                if (!(actual.medianHopsToStable() < expected.medianHopsToStable())
+                        || actual.missed > expected.missed) {
+                    failures.add("w" + window + "/" + scenario.name + ": kalman " + actual.medianHopsToStable()
+                            + " hops to stable, " + actual.missed + " missed; smoothing "
+                            + expected.medianHopsToStable() + " hops, " + expected.missed + " missed");
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private static double[] gate(TunerSettings config) {
+        for (int i = 0; i < WINDOWS.length; i++) {
+            if (WINDOWS[i] == config.windowSize) {
+                return GATES[i];
+            }
+        }
+        throw new IllegalArgumentException("no gate for window " + config.windowSize);
+    }
+}
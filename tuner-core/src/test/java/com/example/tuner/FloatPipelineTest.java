@@ -0,0 +1,93 @@
+package com.example.tuner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The float32 pipeline must read the same pitch as the 16-bit one: both engines get the same
+ * synthetic tone hop by hop, and every hop where both show a reading has to agree within
+ * {@link #MAX_CENTS}.
+ */
+class FloatPipelineTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final double MAX_CENTS = 0.1;
+    private static final double SECONDS = 2.0;
+    private static final int MIN_READINGS = 10;
+    // Open strings plus notes between them and above, so the reading is not always a target.
+    private static final double[] TONES = {82.41, 98.0, 110.0, 146.83, 174.61, 196.0, 246.94, 329.63, 440.0, 659.26};
+
+    @Test
+    void fftDifferenceAgreesWithinATenthOfACent() {
+        assertPipelinesAgree(TunerSettings.defaults());
+        assertPipelinesAgree(TunerSettings.defaults().withWindowSize(4096));
+    }
+
+    @Test
+    void directDifferenceAgreesWithinATenthOfACent() {
+        assertPipelinesAgree(TunerSettings.defaults().withWindowSize(8192).withDifferenceMode(DifferenceMode.DIRECT));
+    }
+
+    @Test
+    void decimatedAndLowLatencyAgreeWithinATenthOfACent() {
+        TunerSettings base = TunerSettings.defaults().withWindowSize(8192);
+        assertPipelinesAgree(base.withDecimation(2));
+        assertPipelinesAgree(base.withLowLatency(true));
+    }
+
+    private static void assertPipelinesAgree(TunerSettings settings) {
+        for (double tone : TONES) {
+            short[] signal = render(tone);
+            double[] shorts = readings(settings.withFloatPipeline(false), signal);
+            double[] floats = readings(settings.withFloatPipeline(true), signal);
+            assertEquals(shorts.length, floats.length, "hop count at " + tone + " Hz");
+            int compared = 0;
+            double worst = 0;
+            for (int i = 0; i < shorts.length; i++) {
+                if (shorts[i] > 0 && floats[i] > 0) {
+                    compared++;
+                    worst = Math.max(worst, Math.abs(1200.0 * Math.log(floats[i] / shorts[i]) / Math.log(2.0)));
+                }
+            }
+            assertTrue(compared >= MIN_READINGS, "too few readings at " + tone + " Hz: " + compared);
+            assertTrue(worst <= MAX_CENTS, "float vs short at " + tone + " Hz: " + worst + " cents");
+        }
+    }
+
+    // The reading of every analysed hop, 0 where there was none.
+    private static double[] readings(TunerSettings settings, short[] signal) {
+        double[] out = new double[signal.length];
+        int[] count = new int[1];
+        TunerEngine engine = new TunerEngine(new TunerEngine.Listener() {
+            @Override
+            public void onPitch(PitchResult result) {
+                out[count[0]++] = result.hasSignal ? result.frequencyHz : 0;
+            }
+
+            @Override
+            public void onAudioApiUsed(boolean isAAudio) {
+            }
+        });
+        engine.applyConfig(settings);
+        engine.startOffline(SAMPLE_RATE);
+        short[] hop = new short[engine.hopSize()];
+        for (int position = 0; position + hop.length <= signal.length; position += hop.length) {
+            System.arraycopy(signal, position, hop, 0, hop.length);
+            engine.feedOffline(hop, hop.length);
+        }
+        engine.stopOffline();
+        return Arrays.copyOf(out, count[0]);
+    }
+
+    private static short[] render(double frequency) {
+        SyntheticAudioSource source = new SyntheticAudioSource(new double[] {frequency}, SECONDS, 0);
+        short[] signal = new short[(int) (SECONDS * SAMPLE_RATE)];
+        source.open(SAMPLE_RATE);
+        source.read(signal, signal.length);
+        return signal;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.tuner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The analysis hop must not allocate once warmed up: every configuration below is fed plucked
+ * strings offline, and the feeding thread's allocated bytes are compared around each round of hops.
+ * A path taken for the first time can still load a class, and a deoptimisation can allocate once,
+ * so the best of a few rounds has to be zero; an allocation in the hop itself shows in every round.
+ */
+class HopAllocationTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int WARMUP_HOPS = 300;
+    private static final int ROUND_HOPS = 100;
+    private static final int ROUNDS = 5;
+    private static final double[] NOTES = {82.41, 110.0, 146.83, 196.0, 246.94, 329.63};
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void defaultSettingsAllocateNothingPerHop() {
+        assertNoAllocation("default", TunerSettings.defaults());
+    }
+
+    @Test
+    void everyDifferencePathAllocatesNothingPerHop() {
+        TunerSettings base = TunerSettings.defaults().withWindowSize(8192);
+        assertNoAllocation("direct", base.withDifferenceMode(DifferenceMode.DIRECT));
+        assertNoAllocation("decimated fft", base.withDecimation(2));
+        assertNoAllocation("decimated direct", base.withDifferenceMode(DifferenceMode.DIRECT).withDecimation(4));
+        assertNoAllocation("full sweep", base.withTrackingSearch(false));
+        assertNoAllocation("parallel direct",
+                base.withDifferenceMode(DifferenceMode.DIRECT).withParallelism(2));
+    }
+
+    @Test
+    void floatPipelineAllocatesNothingPerHop() {
+        TunerSettings base = TunerSettings.defaults().withWindowSize(8192).withFloatPipeline(true);
+        assertNoAllocation("float fft", base);
+        assertNoAllocation("float direct", base.withDifferenceMode(DifferenceMode.DIRECT));
+    }
+
+    @Test
+    void windowAndNamingModesAllocateNothingPerHop() {
+        TunerSettings base = TunerSettings.defaults().withWindowSize(8192);
+        assertNoAllocation("low latency", base.withLowLatency(true));
+        assertNoAllocation("single string", base.withTargetString(0));
+        assertNoAllocation("strum", base.withStrumCheck(true));
+        assertNoAllocation("kalman", base.withPitchTracker(PitchTrackerMode.KALMAN));
+        assertNoAllocation("chromatic", base.withNoteMode(NoteMode.CHROMATIC));
+        assertNoAllocation("custom", base.withNoteMode(NoteMode.CUSTOM));
+    }
+
+    private void assertNoAllocation(String name, TunerSettings settings) {
+        assertTrue(threads.isThreadAllocatedMemorySupported(), "JVM cannot count allocated bytes");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        int[] analysed = new int[1];
+        TunerEngine engine = new TunerEngine(new TunerEngine.Listener() {
+            @Override
+            public void onPitch(PitchResult result) {
+                analysed[0]++;
+            }
+
+            @Override
+            public void onAudioApiUsed(boolean isAAudio) {
+            }
+        });
+        engine.applyConfig(settings);
+        engine.startOffline(SAMPLE_RATE);
+        int hopSize = engine.hopSize();
+        short[] signal = render(hopSize * (WARMUP_HOPS + ROUNDS * ROUND_HOPS));
+        short[] hop = new short[hopSize];
+        int position = feed(engine, signal, 0, hop, WARMUP_HOPS);
+        long threadId = Thread.currentThread().getId();
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && fewest > 0; round++) {
+            int analysedBefore = analysed[0];
+            long before = threads.getThreadAllocatedBytes(threadId);
+            position = feed(engine, signal, position, hop, ROUND_HOPS);
+            fewest = Math.min(fewest, threads.getThreadAllocatedBytes(threadId) - before);
+            assertTrue(analysed[0] > analysedBefore, name + ": no hop was analysed");
+        }
+        engine.stopOffline();
+        assertEquals(0, fewest, name + ": fewest bytes allocated in " + ROUND_HOPS + " hops");
+    }
+
+    private static int feed(TunerEngine engine, short[] signal, int position, short[] hop, int hops) {
+        for (int i = 0; i < hops; i++, position += hop.length) {
+            System.arraycopy(signal, position, hop, 0, hop.length);
+            engine.feedOffline(hop, hop.length);
+        }
+        return position;
+    }
+
+    // Each open string for a quarter second, so the hops cover onsets, string changes and decay.
+    private static short[] render(int samples) {
+        SyntheticAudioSource source = new SyntheticAudioSource(NOTES, 0.25, 0);
+        short[] signal = new short[samples];
+        source.open(SAMPLE_RATE);
+        source.read(signal, samples);
+        return signal;
+    }
+}
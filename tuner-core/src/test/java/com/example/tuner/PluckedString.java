@@ -0,0 +1,86 @@
+package com.example.tuner;
+
+/**
+ * One synthetic pluck: a stiff-string harmonic series (partial k at k·f0·√(1 + B·k²)) plucked
+ * near the bridge, with higher partials dying away faster, an optional linear pitch bend in
+ * cents over the note and a gain for softer plucks.
+ */
+final class PluckedString {
+
+    private static final int PARTIALS = 10;
+    private static final double PLUCK_POSITION = 0.18;
+    private static final double PEAK = 0.5;
+
+    final double frequencyHz;
+    final double seconds;
+    final double inharmonicity;
+    final double decayPerSecond;
+    final double bendCents;
+    final double gain;
+
+    PluckedString(double frequencyHz, double seconds, double inharmonicity, double decayPerSecond,
+                  double bendCents) {
+        this(frequencyHz, seconds, inharmonicity, decayPerSecond, bendCents, 1.0);
+    }
+
+    PluckedString(double frequencyHz, double seconds, double inharmonicity, double decayPerSecond,
+                  double bendCents, double gain) {
+        this.frequencyHz = frequencyHz;
+        this.seconds = seconds;
+        this.inharmonicity = inharmonicity;
+        this.decayPerSecond = decayPerSecond;
+        this.bendCents = bendCents;
+        this.gain = gain;
+    }
+
+    int length(int sampleRate) {
+        return (int) Math.round(seconds * sampleRate);
+    }
+
+    // Fundamental at t seconds after the pluck, the bend included.
+    double frequencyAt(double t) {
+        return frequencyHz * Math.pow(2.0, bendCents * Math.min(t, seconds) / seconds / 1200.0);
+    }
+
+    /**
+     * Adds the note to {@code out[offset..offset + length)} and returns the mean power of its first
+     * 50 ms, so the caller can scale noise to a target SNR.
+     */
+    double render(float[] out, int offset, int sampleRate) {
+        double[] amplitude = new double[PARTIALS + 1];
+        double[] stretch = new double[PARTIALS + 1];
+        double[] decay = new double[PARTIALS + 1];
+        double[] phase = new double[PARTIALS + 1];
+        double sum = 0;
+        for (int k = 1; k <= PARTIALS; k++) {
+            amplitude[k] = Math.abs(Math.sin(Math.PI * k * PLUCK_POSITION)) / k;
+            stretch[k] = k * Math.sqrt(1 + inharmonicity * k * k);
+            decay[k] = decayPerSecond * (1 + 0.2 * (k - 1));
+            sum += amplitude[k];
+        }
+        double scale = PEAK * gain / sum;
+        int length = length(sampleRate);
+        int attack = Math.min(length, sampleRate / 20);
+        double attackPower = 0;
+        double nyquist = sampleRate / 2.0;
+        for (int i = 0; i < length; i++) {
+            double t = i / (double) sampleRate;
+            double f0 = frequencyAt(t);
+            double value = 0;
+            for (int k = 1; k <= PARTIALS; k++) {
+                double f = f0 * stretch[k];
+                if (f >= nyquist) {
+                    break;
+                }
+                phase[k] += 2.0 * Math.PI * f / sampleRate;
+                value += amplitude[k] * Math.exp(-decay[k] * t) * Math.sin(phase[k]);
+            }
+            value *= scale;
+            out[offset + i] += (float) value;
+            if (i < attack) {
+                attackPower += value * value;
+            }
+        }
+        return attack > 0 ? attackPower / attack : 0;
+    }
+}